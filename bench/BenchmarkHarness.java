@@ -0,0 +1,210 @@
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small JMH-style harness for benchmarks that drive a real browser
+ * Each benchmark gets timed warmup iterations, then measurement iterations; the score is the average time
+ * per operation with a 99.9% confidence interval, like JMH's avgt mode. Results are written in JMH's JSON
+ * result layout so existing JMH visualizers can read them, and compared against a baseline file when given.
+ */
+final class BenchmarkHarness {
+    
+    /**
+     * One benchmarked operation, its return value is consumed so the call cannot be optimized away
+     */
+    interface Operation {
+        Object run() throws Exception;
+    }
+    
+    record Result(String name, List<Double> iterationScores, double score, double scoreError, LatencyHistogram samples) {
+    }
+    
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    // Student's t at 99.9% confidence for 1-10 degrees of freedom, the interval JMH reports
+    private static final double[] T_999 = {636.62, 31.60, 12.92, 8.61, 6.87, 5.96, 5.41, 5.04, 4.78, 4.59};
+    
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final List<Result> results = new ArrayList<>();
+    
+    // Written on every operation so the JIT cannot drop the call
+    static volatile Object sink;
+    
+    BenchmarkHarness(SuiteConfig config) {
+        this.warmupIterations = Math.max(0, config.getInt("warmup-iterations", 3));
+        this.measurementIterations = Math.max(1, config.getInt("iterations", 5));
+        this.iterationNanos = Math.max(1, config.getLong("iteration-ms", 1000)) * 1_000_000;
+    }
+    
+    Result benchmark(String name, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iterate(operation, null);
+        }
+        
+        LatencyHistogram samples = new LatencyHistogram();
+        List<Double> scores = new ArrayList<>();
+        for (int i = 0; i < measurementIterations; i++) {
+            scores.add(iterate(operation, samples));
+        }
+        
+        double mean = scores.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        double error = Double.NaN;
+        if (scores.size() > 1) {
+            double variance = scores.stream().mapToDouble(s -> (s - mean) * (s - mean)).sum() / (scores.size() - 1);
+            int degrees = scores.size() - 1;
+            double t = degrees <= T_999.length ? T_999[degrees - 1] : 3.291;
+            error = t * Math.sqrt(variance / scores.size());
+        }
+        
+        Result result = new Result(name, scores, mean, error, samples);
+        results.add(result);
+        System.out.println(String.format("  %-32s %10.3f +- %-8.3f ms/op  (p50 %.3f, p99 %.3f, %d ops)",
+            name, mean, Double.isNaN(error) ? 0 : error,
+            samples.percentile(50) / 1e6, samples.percentile(99) / 1e6, samples.count()));
+        return result;
+    }
+    
+    /**
+     * Run the operation for one iteration's time budget, returns the average milliseconds per operation
+     */
+    private double iterate(Operation operation, LatencyHistogram samples) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long operations = 0;
+        long now = start;
+        while (now < deadline || operations == 0) {
+            long before = now;
+            sink = operation.run();
+            now = System.nanoTime();
+            operations++;
+            if (samples != null) {
+                samples.record(now - before);
+            }
+        }
+        return (now - start) / 1e6 / operations;
+    }
+    
+    List<Result> results() {
+        return results;
+    }
+    
+    /**
+     * Write all results as a JMH-style JSON array, --bench-output overrides the reports/ default
+     */
+    Path writeJson(SuiteConfig config, String benchmarkClass) throws IOException {
+        Path file = Path.of(config.get("bench-output",
+            "reports/benchmarks-" + LocalDateTime.now().format(FILE_STAMP) + ".json"));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(out)) {
+            json.setIndent("  ");
+            json.beginArray();
+            for (Result result : results) {
+                json.beginObject();
+                json.name("benchmark").value(benchmarkClass + "." + result.name());
+                json.name("mode").value("avgt");
+                json.name("threads").value(1);
+                json.name("forks").value(0);
+                json.name("jvm").value(System.getProperty("java.home"));
+                json.name("jdkVersion").value(System.getProperty("java.version"));
+                json.name("warmupIterations").value(warmupIterations);
+                json.name("warmupTime").value(iterationNanos / 1_000_000 + " ms");
+                json.name("measurementIterations").value(measurementIterations);
+                json.name("measurementTime").value(iterationNanos / 1_000_000 + " ms");
+                json.name("primaryMetric").beginObject();
+                json.name("score").value(result.score());
+                // JMH writes an undefined error (single iteration) as the string "NaN"
+                double error = Double.isNaN(result.scoreError()) ? 0 : result.scoreError();
+                if (Double.isNaN(result.scoreError())) {
+                    json.name("scoreError").value("NaN");
+                } else {
+                    json.name("scoreError").value(error);
+                }
+                json.name("scoreConfidence").beginArray()
+                    .value(result.score() - error)
+                    .value(result.score() + error)
+                    .endArray();
+                json.name("scorePercentiles").beginObject();
+                for (double percentile : new double[]{0, 50, 90, 95, 99, 100}) {
+                    long nanos = percentile == 0 ? result.samples().minNanos()
+                        : percentile == 100 ? result.samples().maxNanos() : result.samples().percentile(percentile);
+                    json.name(String.valueOf(percentile)).value(nanos / 1e6);
+                }
+                json.endObject();
+                json.name("scoreUnit").value("ms/op");
+                json.name("rawData").beginArray().beginArray();
+                for (double score : result.iterationScores()) {
+                    json.value(score);
+                }
+                json.endArray().endArray();
+                json.endObject();
+                json.endObject();
+            }
+            json.endArray();
+        }
+        return file;
+    }
+    
+    /**
+     * Compare with an earlier result file (--bench-baseline) and flag benchmarks that got slower
+     * A benchmark regresses when its score grew by more than --regression-threshold (default 10%)
+     * and the two confidence intervals do not overlap. Returns the number of regressions.
+     */
+    int compareWithBaseline(SuiteConfig config, String benchmarkClass) throws IOException {
+        String baselinePath = config.get("bench-baseline", null);
+        if (baselinePath == null) {
+            return 0;
+        }
+        double threshold = config.getDouble("regression-threshold", 0.10);
+        
+        Map<String, double[]> baseline = new HashMap<>();
+        try (Reader in = Files.newBufferedReader(Path.of(baselinePath), StandardCharsets.UTF_8)) {
+            JsonArray entries = JsonParser.parseReader(in).getAsJsonArray();
+            for (JsonElement entry : entries) {
+                JsonObject object = entry.getAsJsonObject();
+                JsonArray confidence = object.getAsJsonObject("primaryMetric").getAsJsonArray("scoreConfidence");
+                baseline.put(object.get("benchmark").getAsString(), new double[]{
+                    object.getAsJsonObject("primaryMetric").get("score").getAsDouble(),
+                    confidence.get(1).getAsDouble()});
+            }
+        }
+        
+        System.out.println("\nComparison with " + baselinePath + " (threshold " + Math.round(threshold * 100) + "%)");
+        int regressions = 0;
+        for (Result result : results) {
+            double[] before = baseline.get(benchmarkClass + "." + result.name());
+            if (before == null) {
+                System.out.println(String.format("  %-32s new benchmark", result.name()));
+                continue;
+            }
+            double change = (result.score() - before[0]) / before[0];
+            double lower = result.score() - (Double.isNaN(result.scoreError()) ? 0 : result.scoreError());
+            boolean regressed = change > threshold && lower > before[1];
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format("  %-32s %10.3f -> %-10.3f %+6.1f%%%s",
+                result.name(), before[0], result.score(), change * 100, regressed ? "  REGRESSION" : ""));
+        }
+        return regressions;
+    }
+}
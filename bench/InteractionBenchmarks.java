@@ -0,0 +1,85 @@
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import java.nio.file.Path;
+
+/**
+ * Benchmarks for the browser interaction primitives, run against the local stand-in page
+ * Each pair measures one of the speed-ups the suite relies on:
+ * sendKeys vs a JavaScript value write, findElement vs a cached reference, the whole page source vs
+ * the targeted result read, and a full reload vs the form snapshot restore.
+ *
+ * Run with scripts/run-benchmarks-mac-linux.sh (or -windows.bat); every suite flag still applies,
+ * plus --warmup-iterations, --iterations, --iteration-ms, --bench-output and --bench-baseline.
+ */
+public class InteractionBenchmarks {
+    
+    private static final String BENCHMARK_CLASS = "InteractionBenchmarks";
+    
+    public static void main(String[] args) throws Exception {
+        SuiteConfig config = SuiteConfig.fromArgs(args);
+        // Benchmarks always use the local copy of the page and stay headless unless asked otherwise
+        config = config.with("headless", config.get("headless", "true"));
+        
+        BenchmarkHarness harness = new BenchmarkHarness(config);
+        int regressions;
+        try (LocalCalculatorServer stub = LocalCalculatorServer.start(config)) {
+            config = config.with("url", stub.url());
+            String url = stub.url();
+            System.out.println("Interaction benchmarks against " + url);
+            System.out.println("Load profile: " + LoadProfile.from(config));
+            
+            BrowserSession session = BrowserSession.open(1, config.resultTimeout(), LoadProfile.from(config));
+            try {
+                run(harness, session, url);
+            } finally {
+                session.quit();
+            }
+            
+            Path report = harness.writeJson(config, BENCHMARK_CLASS);
+            System.out.println("\nBenchmark results: " + report);
+            regressions = harness.compareWithBaseline(config, BENCHMARK_CLASS);
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed");
+            System.exit(2);
+        }
+    }
+    
+    private static void run(BenchmarkHarness harness, BrowserSession session, String url) throws Exception {
+        WebDriver driver = session.driver();
+        FormFiller form = new FormFiller(session);
+        ResultExtractor extractor = new ResultExtractor(session.js());
+        session.navigateToCalculatorSmart(url);
+        
+        System.out.println("\nField input");
+        WebElement age = driver.findElement(By.name("cage"));
+        harness.benchmark("fastInputSendKeys", () -> {
+            form.fastInput(age, "cage", "35");
+            return age;
+        });
+        harness.benchmark("jsValueAssignment",
+            () -> session.js().executeScript("arguments[0].value = arguments[1];", age, "35"));
+        
+        System.out.println("\nElement lookup");
+        WebElement height = driver.findElement(By.name("cheightmeter"));
+        harness.benchmark("findElementByName", () -> driver.findElement(By.name("cheightmeter")).isDisplayed());
+        harness.benchmark("cachedReference", height::isDisplayed);
+        
+        System.out.println("\nResult read");
+        form.fillAndCalculate(CalculatorProfile.metric("35", Sex.MALE, "180", "80", "1.55"));
+        harness.benchmark("pageSourceRead", () -> ResultExtractor.parseHtml(driver.getPageSource()));
+        harness.benchmark("targetedResultRead", extractor::extract);
+        
+        System.out.println("\nBetween steps");
+        harness.benchmark("fullPageReload", () -> {
+            session.setPageLoaded(false);
+            session.navigateToCalculatorSmart(url);
+            return session;
+        });
+        harness.benchmark("formSnapshotRestore", () -> {
+            session.navigateToCalculatorSmart(url);
+            return session;
+        });
+    }
+}
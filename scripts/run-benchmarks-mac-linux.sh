@@ -0,0 +1,44 @@
+#!/bin/bash
+
+echo "========================================"
+echo "Running Interaction Benchmarks"
+echo "========================================"
+echo
+
+# Colors for output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+NC='\033[0m' # No Color
+
+print_status() {
+    echo -e "${GREEN}[INFO]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+# Check if Java is available
+if ! command -v java &> /dev/null; then
+    print_error "Java not found. Please run setup-mac-linux.sh first."
+    exit 1
+fi
+
+# Check if ChromeDriver exists
+if [[ ! -f "drivers/chromedriver" ]]; then
+    print_error "ChromeDriver not found. Please run setup-mac-linux.sh first."
+    exit 1
+fi
+
+chmod +x drivers/chromedriver
+
+print_status "Compiling suite and benchmark sources..."
+if javac -cp "lib/*" -d . src/*.java bench/*.java; then
+    print_status "Compilation successful!"
+else
+    print_error "Compilation failed!"
+    exit 1
+fi
+
+echo
+java -cp ".:lib/*" InteractionBenchmarks "$@"
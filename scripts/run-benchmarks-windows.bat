@@ -0,0 +1,32 @@
+@echo off
+echo ========================================
+echo Running Interaction Benchmarks
+echo ========================================
+echo.
+
+:: Check if Java is available
+java -version >nul 2>&1
+if %errorlevel% neq 0 (
+    echo Java not found. Please run setup-windows.bat first.
+    pause
+    exit /b 1
+)
+
+:: Check if ChromeDriver exists
+if not exist "drivers\chromedriver.exe" (
+    echo ChromeDriver not found. Please run setup-windows.bat first.
+    pause
+    exit /b 1
+)
+
+echo Compiling suite and benchmark sources...
+javac -cp "lib\*" -d . src\*.java bench\*.java
+
+if %errorlevel% neq 0 (
+    echo Compilation failed!
+    pause
+    exit /b 1
+)
+
+echo.
+java -cp ".;lib\*" InteractionBenchmarks %*
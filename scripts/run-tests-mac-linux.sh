@@ -40,7 +40,7 @@ fi
 chmod +x drivers/chromedriver
 
 print_status "Compiling Java source code..."
-if javac -cp "lib/*" -d . src/CarbohydrateCalculatorAutomation.java; then
+if javac -cp "lib/*" -d . src/*.java; then
     print_status "Compilation successful!"
 else
     print_error "Compilation failed!"
@@ -52,7 +52,7 @@ print_status "Running test suite..."
 echo
 
 # Run the tests
-if java -cp ".:lib/*" CarbohydrateCalculatorAutomation; then
+if java -cp ".:lib/*" CarbohydrateCalculatorAutomation "$@"; then
     echo
     print_status "Test execution completed successfully!"
 else
@@ -20,7 +20,7 @@ if not exist "drivers\chromedriver.exe" (
 )
 
 echo Compiling Java source code...
-javac -cp "lib\*" -d . src\CarbohydrateCalculatorAutomation.java
+javac -cp "lib\*" -d . src\*.java
 
 if %errorlevel% neq 0 (
     echo Compilation failed!
@@ -34,7 +34,7 @@ echo Running test suite...
 echo.
 
 :: Run the tests
-java -cp ".;lib\*" CarbohydrateCalculatorAutomation
+java -cp ".;lib\*" CarbohydrateCalculatorAutomation %*
 
 if %errorlevel% neq 0 (
     echo.
@@ -177,6 +177,6 @@ echo "To run the tests, use:"
 echo "  ./scripts/run-tests-mac-linux.sh"
 echo
 echo "Or manually:"
-echo "  javac -cp 'lib/*' -d . src/CarbohydrateCalculatorAutomation.java"
+echo "  javac -cp 'lib/*' -d . src/*.java"
 echo "  java -cp '.:lib/*' CarbohydrateCalculatorAutomation"
 echo
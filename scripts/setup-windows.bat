@@ -91,7 +91,7 @@ echo To run the tests, use:
 echo   scripts\run-tests-windows.bat
 echo.
 echo Or manually:
-echo   javac -cp "lib\*" -d . src\CarbohydrateCalculatorAutomation.java
+echo   javac -cp "lib\*" -d . src\*.java
 echo   java -cp ".;lib\*" CarbohydrateCalculatorAutomation
 echo.
 pause
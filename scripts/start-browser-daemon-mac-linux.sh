@@ -0,0 +1,45 @@
+#!/bin/bash
+
+echo "========================================"
+echo "Starting Browser Daemon"
+echo "========================================"
+echo
+
+# Colors for output
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+NC='\033[0m' # No Color
+
+print_status() {
+    echo -e "${GREEN}[INFO]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+# Check if Java is available
+if ! command -v java &> /dev/null; then
+    print_error "Java not found. Please run setup-mac-linux.sh first."
+    exit 1
+fi
+
+# Check if ChromeDriver exists
+if [[ ! -f "drivers/chromedriver" ]]; then
+    print_error "ChromeDriver not found. Please run setup-mac-linux.sh first."
+    exit 1
+fi
+
+chmod +x drivers/chromedriver
+
+print_status "Compiling Java source code..."
+if javac -cp "lib/*" -d . src/*.java; then
+    print_status "Compilation successful!"
+else
+    print_error "Compilation failed!"
+    exit 1
+fi
+
+echo
+print_status "Keeping warm browsers until stopped with Ctrl+C"
+java -cp ".:lib/*" BrowserDaemon "$@"
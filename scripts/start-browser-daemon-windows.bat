@@ -0,0 +1,33 @@
+@echo off
+echo ========================================
+echo Starting Browser Daemon
+echo ========================================
+echo.
+
+:: Check if Java is available
+java -version >nul 2>&1
+if %errorlevel% neq 0 (
+    echo Java not found. Please run setup-windows.bat first.
+    pause
+    exit /b 1
+)
+
+:: Check if ChromeDriver exists
+if not exist "drivers\chromedriver.exe" (
+    echo ChromeDriver not found. Please run setup-windows.bat first.
+    pause
+    exit /b 1
+)
+
+echo Compiling Java source code...
+javac -cp "lib\*" -d . src\*.java
+
+if %errorlevel% neq 0 (
+    echo Compilation failed!
+    pause
+    exit /b 1
+)
+
+echo.
+echo Keeping warm browsers until stopped with Ctrl+C
+java -cp ".;lib\*" BrowserDaemon %*
@@ -0,0 +1,162 @@
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Step timeouts derived from the latencies of earlier runs instead of a flat limit
+ * The p99 of each step is kept in a small stats file (.cache/step-stats.json, --step-stats overrides it,
+ * "off" disables it), separately per target: the local stand-in and each live host. A step seen at least
+ * --timeout-min-samples times waits p99 x --timeout-factor, never less than --timeout-floor-ms and never
+ * more than its configured timeout. At the end of the run this run's StepTimings are blended in, older
+ * runs counting for at most HISTORY samples.
+ */
+final class AdaptiveTimeouts {
+    
+    private record Stat(long count, long p99) {
+    }
+    
+    // Cap on the weight of past runs, so the stats follow a page that got faster or slower
+    private static final long HISTORY = 500;
+    
+    private static final Map<String, Stat> STATS = new ConcurrentHashMap<>();
+    
+    private static volatile Path file;
+    private static volatile String target;
+    // Stats of the other targets, written back untouched
+    private static JsonObject otherTargets = new JsonObject();
+    private static volatile double factor = 3;
+    private static volatile long minSamples = 20;
+    private static volatile long floorNanos = Duration.ofMillis(500).toNanos();
+    
+    private AdaptiveTimeouts() {
+    }
+    
+    /**
+     * Load the stats file for this run, unless --step-stats=off
+     */
+    static void open(SuiteConfig config) {
+        String location = config.get("step-stats", ".cache/step-stats.json");
+        if (location.equals("off")) {
+            return;
+        }
+        factor = config.getDouble("timeout-factor", 3);
+        minSamples = config.getLong("timeout-min-samples", 20);
+        floorNanos = Duration.ofMillis(config.getLong("timeout-floor-ms", 500)).toNanos();
+        file = Path.of(location);
+        target = config.targetName();
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            JsonObject targets = JsonParser.parseString(Files.readString(file, StandardCharsets.UTF_8))
+                .getAsJsonObject().getAsJsonObject("targets");
+            if (targets == null) {
+                // Stats from before they were kept per target cannot say which page they were measured on
+                return;
+            }
+            JsonObject steps = targets.has(target) ? targets.getAsJsonObject(target) : new JsonObject();
+            targets.remove(target);
+            otherTargets = targets;
+            for (String step : steps.keySet()) {
+                JsonObject stat = steps.getAsJsonObject(step);
+                STATS.put(step, new Stat(stat.get("count").getAsLong(), stat.get("p99").getAsLong()));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable step stats " + file + ": " + e.getMessage());
+            STATS.clear();
+            otherTargets = new JsonObject();
+        }
+    }
+    
+    /**
+     * Timeout for one wait of the given step, the configured timeout until enough samples were seen
+     */
+    static Duration timeout(String step, Duration configured) {
+        Stat stat = file == null ? null : STATS.get(step);
+        if (stat == null || stat.count() < minSamples) {
+            return configured;
+        }
+        long nanos = (long) (stat.p99() * factor);
+        return Duration.ofNanos(Math.min(configured.toNanos(), Math.max(floorNanos, nanos)));
+    }
+    
+    /**
+     * The adaptive timeouts in effect, for the run banner
+     */
+    static String describe(Duration configured) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Stat> entry : new TreeMap<>(STATS).entrySet()) {
+            if (entry.getKey().startsWith("wait.") || entry.getKey().startsWith("navigate.")) {
+                Duration timeout = timeout(entry.getKey(), configured);
+                if (!timeout.equals(configured)) {
+                    text.append(text.length() == 0 ? "" : ", ").append(entry.getKey()).append(' ')
+                        .append(timeout.toMillis()).append(" ms");
+                }
+            }
+        }
+        return text.length() == 0 ? "flat " + configured.toMillis() + " ms" : text.toString();
+    }
+    
+    /**
+     * Blend this run's step latencies into the stats and write the file back
+     */
+    static void close() {
+        Path stats = file;
+        if (stats == null) {
+            return;
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : StepTimings.snapshot().entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            long count = histogram.count();
+            long p99 = histogram.percentile(99);
+            STATS.merge(entry.getKey(), new Stat(count, p99), (old, run) -> {
+                long weight = Math.min(old.count(), HISTORY);
+                return new Stat(old.count() + run.count(),
+                    (long) ((old.p99() * (double) weight + run.p99() * (double) run.count()) / (weight + run.count())));
+            });
+        }
+        
+        try {
+            if (stats.getParent() != null) {
+                Files.createDirectories(stats.getParent());
+            }
+            Path tmp = stats.resolveSibling(stats.getFileName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8);
+                 JsonWriter json = new JsonWriter(out)) {
+                json.setIndent("  ");
+                json.beginObject();
+                json.name("updatedAt").value(Instant.now().toString());
+                json.name("unit").value("ns");
+                json.name("targets").beginObject();
+                for (String other : new TreeSet<>(otherTargets.keySet())) {
+                    json.name(other).jsonValue(otherTargets.get(other).toString());
+                }
+                json.name(target).beginObject();
+                for (Map.Entry<String, Stat> entry : new TreeMap<>(STATS).entrySet()) {
+                    json.name(entry.getKey()).beginObject();
+                    json.name("count").value(entry.getValue().count());
+                    json.name("p99").value(entry.getValue().p99());
+                    json.endObject();
+                }
+                json.endObject();
+                json.endObject();
+                json.endObject();
+            }
+            Files.move(tmp, stats, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write step stats " + stats + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,417 @@
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+import org.openqa.selenium.TimeoutException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Boundary mode: find where the page starts rejecting age, height and weight, per unit system
+ * Every edge is searched on its own with the other fields nominal. The search first checks the predicted
+ * edge (from the baseline, or the oracle's ranges on the first run) with two submissions, and only when
+ * that misses gallops outwards from the nominal value and bisects the bracket down to --boundary-resolution.
+ * Edges are compared with the baseline of the target (baselines/boundaries-<target>.json, --boundary-baseline
+ * overrides it) and any that moved is reported as a failure. A baseline of another target is not used.
+ * Assumes each field accepts one interval of values around its nominal value.
+ */
+final class BoundarySearch {
+    
+    enum Field {
+        AGE, HEIGHT, WEIGHT;
+        
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+    
+    /**
+     * Searching up from the nominal value (MAX) or down from it (MIN)
+     */
+    enum Side {
+        MIN(-1), MAX(1);
+        
+        final int direction;
+        
+        Side(int direction) {
+            this.direction = direction;
+        }
+        
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+    
+    /**
+     * One edge of one field: the outermost accepted value and the first rejected one past it
+     * Both are in the field's unit (years, cm or inches, kg or lb); rejected is null when the page still
+     * accepted the value at the end of the search span, so there is no edge to find.
+     */
+    record Edge(UnitSystem units, Field field, Side side, double accepted, Double rejected) {
+        
+        String key() {
+            return units.name().toLowerCase() + "." + field.label() + "." + side.label();
+        }
+    }
+    
+    /**
+     * Submits one profile and says whether the page accepted it
+     */
+    interface Probe {
+        boolean accepts(CalculatorProfile profile);
+    }
+    
+    private static final String NOMINAL_ACTIVITY = "1.55";
+    
+    private final SuiteConfig config;
+    private final double resolution;
+    private final double span;
+    private final Path baselineFile;
+    private final AtomicInteger probes = new AtomicInteger();
+    
+    BoundarySearch(SuiteConfig config) {
+        this.config = config;
+        this.resolution = config.getDouble("boundary-resolution", 1);
+        this.span = config.getDouble("boundary-span", 1000);
+        this.baselineFile = Path.of(config.get("boundary-baseline",
+            "baselines/boundaries-" + config.targetName().replaceAll("[^A-Za-z0-9.-]", "_") + ".json"));
+        if (resolution <= 0 || span < resolution) {
+            throw new IllegalArgumentException("--boundary-resolution must be positive and below --boundary-span");
+        }
+    }
+    
+    /**
+     * Search every edge on the pooled sessions, then report drift against the baseline
+     */
+    void run(DriverPool pool) throws InterruptedException, IOException {
+        Map<String, Edge> baseline = new HashMap<>();
+        boolean foreign = false;
+        try {
+            baseline.putAll(readBaseline());
+        } catch (IllegalArgumentException e) {
+            // Edges of another target would show up as moved and mislead the predictions
+            System.out.println(e.getMessage() + ", not compared; --update-baseline=true replaces it");
+            foreign = true;
+        }
+        if (baseline.isEmpty()) {
+            System.out.println("No boundary baseline " + (foreign ? "for " + config.targetName() : "at " + baselineFile)
+                + ", predicting edges from the oracle's ranges");
+        } else {
+            System.out.println("Boundary baseline: " + baselineFile + " (" + baseline.size() + " edges)");
+        }
+        
+        List<Edge> edges = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(pool.size());
+        List<Future<Edge>> futures = new ArrayList<>();
+        try {
+            for (UnitSystem units : UnitSystem.values()) {
+                for (Field field : Field.values()) {
+                    for (Side side : Side.values()) {
+                        futures.add(executor.submit(() -> {
+                            BrowserSession session = pool.acquire();
+                            try {
+                                return search(units, field, side, baseline, browserProbe(session));
+                            } finally {
+                                pool.release(session);
+                            }
+                        }));
+                    }
+                }
+            }
+            for (Future<Edge> future : futures) {
+                try {
+                    edges.add(future.get());
+                } catch (ExecutionException e) {
+                    System.err.println("Boundary search failed: " + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        printReport(edges, baseline);
+        if ((baseline.isEmpty() && !foreign) || config.get("update-baseline", "false").equals("true")) {
+            writeBaseline(edges);
+            System.out.println("Boundary baseline written to " + baselineFile);
+        }
+    }
+    
+    /**
+     * Find one edge, reporting the search as one test with a step per submission
+     */
+    Edge search(UnitSystem units, Field field, Side side, Map<String, Edge> baseline, Probe probe) {
+        String testId = "boundary-" + units.name().toLowerCase() + "-" + field.label() + "-" + side.label();
+        long startNanos = System.nanoTime();
+        Span span = Tracing.tracer().spanBuilder(testId)
+            .setNoParent()
+            .setAttribute("test.id", testId)
+            .startSpan();
+        AtomicInteger steps = new AtomicInteger();
+        try (Scope ignored = span.makeCurrent()) {
+            Probe reporting = profile -> {
+                long probeStart = System.nanoTime();
+                probes.incrementAndGet();
+                boolean accepted = probe.accepts(profile);
+                ResultReporter.step(new ResultReporter.StepResult(testId, steps.incrementAndGet(), "probe", profile,
+                    "boundary", "browser", null, accepted ? "" : "rejected", null, System.nanoTime() - probeStart,
+                    Instant.now(), ResultReporter.currentTraceId()));
+                return accepted;
+            };
+            Edge edge = bisect(units, field, side, predict(units, field, side, baseline), reporting);
+            Edge previous = baseline.get(edge.key());
+            String failure = previous != null && moved(previous, edge)
+                ? "edge moved from " + describe(previous) + " to " + describe(edge) : null;
+            span.setAttribute("test.result", describe(edge));
+            span.setAttribute("test.probes", steps.get());
+            if (failure != null) {
+                span.setStatus(StatusCode.ERROR, failure);
+            }
+            ResultReporter.test(new ResultReporter.TestResult(testId, "boundary " + edge.key(), steps.get(),
+                failure == null ? List.of() : List.of(failure), null, System.nanoTime() - startNanos, Instant.now(),
+                ResultReporter.currentTraceId()));
+            return edge;
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, String.valueOf(e.getMessage()));
+            ResultReporter.test(new ResultReporter.TestResult(testId, "boundary " + testId, steps.get(), List.of(),
+                String.valueOf(e.getMessage()), System.nanoTime() - startNanos, Instant.now(),
+                ResultReporter.currentTraceId()));
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+    
+    /**
+     * Confirm the predicted edge, or bracket the real one by galloping outwards and bisect the bracket
+     * Values are counted in steps of the resolution from zero so repeated halving never drifts off the grid.
+     * predicted is the predicted last accepted step, null when no edge is expected within the span.
+     */
+    private Edge bisect(UnitSystem units, Field field, Side side, Long predicted, Probe probe) {
+        int direction = side.direction;
+        long nominal = Math.round(nominal(units, field) / resolution);
+        long limit = nominal + direction * Math.round(span / resolution);
+        long accepted = nominal;
+        Long rejected = null;
+        
+        if (predicted != null && (predicted - nominal) * direction > 0 && (limit - predicted) * direction > 0) {
+            if (probe.accepts(profile(units, field, predicted))) {
+                accepted = predicted;
+                long past = predicted + direction;
+                if (probe.accepts(profile(units, field, past))) {
+                    accepted = past;
+                } else {
+                    rejected = past;
+                }
+            } else {
+                rejected = predicted;
+            }
+        } else if (predicted == null) {
+            if (probe.accepts(profile(units, field, limit))) {
+                return new Edge(units, field, side, limit * resolution, null);
+            }
+            rejected = limit;
+        }
+        
+        for (long step = 1; rejected == null; step *= 2) {
+            long next = (limit - accepted) * direction <= step ? limit : accepted + direction * step;
+            if (probe.accepts(profile(units, field, next))) {
+                accepted = next;
+                if (next == limit) {
+                    return new Edge(units, field, side, limit * resolution, null);
+                }
+            } else {
+                rejected = next;
+            }
+        }
+        
+        while (Math.abs(rejected - accepted) > 1) {
+            long middle = accepted + (rejected - accepted) / 2;
+            if (probe.accepts(profile(units, field, middle))) {
+                accepted = middle;
+            } else {
+                rejected = middle;
+            }
+        }
+        return new Edge(units, field, side, accepted * resolution, rejected * resolution);
+    }
+    
+    /**
+     * Last accepted step expected for an edge: the baseline's when there is one, otherwise the oracle's ranges
+     * Returns null when no edge is expected, the oracle puts no upper limit on height or weight.
+     */
+    private Long predict(UnitSystem units, Field field, Side side, Map<String, Edge> baseline) {
+        Edge previous = baseline.get(units.name().toLowerCase() + "." + field.label() + "." + side.label());
+        if (previous != null) {
+            return previous.rejected() == null ? null : Math.round(previous.accepted() / resolution);
+        }
+        if (field == Field.AGE) {
+            double age = side == Side.MIN ? CarbOracle.MIN_AGE : CarbOracle.MAX_AGE;
+            return Math.round(age / resolution);
+        }
+        // Height and weight only have to be positive
+        return side == Side.MIN ? 1L : null;
+    }
+    
+    private static double nominal(UnitSystem units, Field field) {
+        boolean us = units == UnitSystem.US;
+        switch (field) {
+            case AGE:
+                return 45;
+            case HEIGHT:
+                return us ? 69 : 175;
+            default:
+                return us ? 165 : 75;
+        }
+    }
+    
+    /**
+     * Nominal profile with one field set to the given step, US heights are split into feet and inches
+     */
+    private CalculatorProfile profile(UnitSystem units, Field field, long step) {
+        String[] values = new String[Field.values().length];
+        for (Field other : Field.values()) {
+            values[other.ordinal()] = CarbOracle.formatNumber(nominal(units, other));
+        }
+        double value = step * resolution;
+        values[field.ordinal()] = CarbOracle.formatNumber(value);
+        
+        if (units == UnitSystem.METRIC) {
+            return CalculatorProfile.metric(values[Field.AGE.ordinal()], Sex.MALE, values[Field.HEIGHT.ordinal()],
+                values[Field.WEIGHT.ordinal()], NOMINAL_ACTIVITY);
+        }
+        double inches = field == Field.HEIGHT ? value : nominal(units, Field.HEIGHT);
+        double feet = inches < 0 ? Math.ceil(inches / 12) : Math.floor(inches / 12);
+        return CalculatorProfile.us(values[Field.AGE.ordinal()], Sex.MALE, CarbOracle.formatNumber(feet),
+            CarbOracle.formatNumber(Math.round((inches - feet * 12) * 1e6) / 1e6),
+            values[Field.WEIGHT.ordinal()], NOMINAL_ACTIVITY);
+    }
+    
+    /**
+     * Submit the profile in the browser, the page accepts it when it shows a result and no validation message
+     */
+    private Probe browserProbe(BrowserSession session) {
+        ResultExtractor extractor = new ResultExtractor(session.js());
+        String url = config.calculatorUrl();
+        return profile -> {
+            session.navigateToCalculatorSmart(url);
+            // A timeout here counts as a rejection, so a slow accept must get the configured timeout
+            session.results().setFullTimeouts(true);
+            try {
+                new FormFiller(session).fillAndCalculate(profile);
+            } catch (TimeoutException e) {
+                // A rejected input can leave the page exactly as it was
+                return false;
+            } finally {
+                session.results().setFullTimeouts(false);
+            }
+            CalculationResult result = extractor.extract();
+            return result != null && result.isComplete() && extractor.validationMessage().isEmpty();
+        };
+    }
+    
+    private boolean moved(Edge previous, Edge current) {
+        boolean bothOpen = previous.rejected() == null && current.rejected() == null;
+        return !bothOpen && (previous.rejected() == null || current.rejected() == null
+            || Math.abs(previous.accepted() - current.accepted()) >= resolution / 2);
+    }
+    
+    private static String describe(Edge edge) {
+        String unit = edge.field() == Field.AGE ? "" : edge.field() == Field.HEIGHT
+            ? (edge.units() == UnitSystem.US ? " in" : " cm") : (edge.units() == UnitSystem.US ? " lb" : " kg");
+        if (edge.rejected() == null) {
+            return "no edge, " + CarbOracle.formatNumber(edge.accepted()) + unit + " still accepted";
+        }
+        return CarbOracle.formatNumber(edge.accepted()) + unit + " accepted, "
+            + CarbOracle.formatNumber(edge.rejected()) + unit + " rejected";
+    }
+    
+    private void printReport(List<Edge> edges, Map<String, Edge> baseline) {
+        System.out.println("\nBoundary Search Summary");
+        System.out.println("Edges: " + edges.size() + ", submissions: " + probes.get()
+            + " (resolution " + CarbOracle.formatNumber(resolution) + ", span " + CarbOracle.formatNumber(span) + ")");
+        int moved = 0;
+        for (Edge edge : edges) {
+            Edge previous = baseline.get(edge.key());
+            boolean drift = previous != null && moved(previous, edge);
+            moved += drift ? 1 : 0;
+            System.out.println(String.format("  %-18s %s%s", edge.key(), describe(edge),
+                drift ? "  MOVED (baseline: " + describe(previous) + ")" : ""));
+        }
+        if (!baseline.isEmpty()) {
+            System.out.println(moved == 0 ? "All edges match the baseline" : moved + " edge(s) moved since the baseline");
+        }
+        System.out.println("=======================================");
+    }
+    
+    private Map<String, Edge> readBaseline() throws IOException {
+        Map<String, Edge> edges = new HashMap<>();
+        if (!Files.exists(baselineFile)) {
+            return edges;
+        }
+        JsonObject root = JsonParser.parseString(Files.readString(baselineFile, StandardCharsets.UTF_8)).getAsJsonObject();
+        String target = root.has("target") ? root.get("target").getAsString() : "";
+        if (!target.equals(config.targetName())) {
+            throw new IllegalArgumentException("Boundary baseline " + baselineFile + " was searched against "
+                + (target.isEmpty() ? "an unknown target" : target) + ", this run targets " + config.targetName());
+        }
+        for (JsonElement element : root.getAsJsonArray("edges")) {
+            JsonObject edge = element.getAsJsonObject();
+            JsonElement rejected = edge.get("rejected");
+            Edge parsed = new Edge(UnitSystem.valueOf(edge.get("units").getAsString().toUpperCase()),
+                Field.valueOf(edge.get("field").getAsString().toUpperCase()),
+                Side.valueOf(edge.get("side").getAsString().toUpperCase()),
+                edge.get("accepted").getAsDouble(),
+                rejected == null || rejected.isJsonNull() ? null : rejected.getAsDouble());
+            edges.put(parsed.key(), parsed);
+        }
+        return edges;
+    }
+    
+    private void writeBaseline(List<Edge> edges) throws IOException {
+        if (baselineFile.getParent() != null) {
+            Files.createDirectories(baselineFile.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(baselineFile, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(out)) {
+            json.setIndent("  ");
+            json.beginObject();
+            json.name("generatedAt").value(Instant.now().toString());
+            json.name("target").value(config.targetName());
+            json.name("resolution").value(resolution);
+            json.name("edges").beginArray();
+            for (Edge edge : edges) {
+                json.beginObject();
+                json.name("units").value(edge.units().name().toLowerCase());
+                json.name("field").value(edge.field().label());
+                json.name("side").value(edge.side().label());
+                json.name("accepted").value(edge.accepted());
+                json.name("rejected");
+                if (edge.rejected() == null) {
+                    json.nullValue();
+                } else {
+                    json.value(edge.rejected());
+                }
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+    }
+}
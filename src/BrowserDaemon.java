@@ -0,0 +1,350 @@
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived local process keeping warm Chrome sessions with the calculator page already loaded
+ * Each Chrome is started with a remote debugging port. Suite runs given --browser-daemon lease one over a
+ * small HTTP endpoint on the loopback interface and attach ChromeDriver to it with debuggerAddress instead
+ * of launching a browser. A released browser is health-checked and reloaded; after --recycle-after uses, or
+ * when a check fails or a lease expires, it is replaced by a fresh one so leaks stay bounded.
+ *
+ * Start with java -cp ".:lib/*" BrowserDaemon --workers=3 --headless, stop with Ctrl+C.
+ */
+final class BrowserDaemon implements AutoCloseable {
+    
+    /**
+     * A browser leased from a running daemon, released when the suite's session quits
+     */
+    record Lease(String daemonUrl, String id, String debuggerAddress, String pageUrl) {
+        
+        /**
+         * Hand the browser back, discard asks the daemon to replace it rather than reuse it
+         */
+        void release(boolean discard) {
+            try {
+                send(daemonUrl, "/release?lease=" + id + (discard ? "&discard=true" : ""), Duration.ofSeconds(10));
+            } catch (IOException e) {
+                System.err.println("Failed to release browser lease " + id + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * One warm browser and its bookkeeping, guarded by the daemon's queues
+     */
+    private static final class Slot {
+        final int id;
+        int port;
+        ChromeDriver driver;
+        int uses;
+        String leaseId;
+        long leasedAtNanos;
+        
+        Slot(int id) {
+            this.id = id;
+        }
+    }
+    
+    static final int DEFAULT_PORT = 9555;
+    
+    private final LoadProfile loadProfile;
+    private final String pageUrl;
+    private final int recycleAfter;
+    private final long leaseTimeoutNanos;
+    private final long leaseWaitMillis;
+    
+    private final List<Slot> slots = new ArrayList<>();
+    private final BlockingQueue<Slot> idle = new LinkedBlockingQueue<>();
+    private final Map<String, Slot> leased = new ConcurrentHashMap<>();
+    private final ExecutorService maintenance;
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicInteger leaseCounter = new AtomicInteger();
+    private final AtomicLong launches = new AtomicLong();
+    private final AtomicLong recycles = new AtomicLong();
+    private HttpServer server;
+    
+    private BrowserDaemon(SuiteConfig config) {
+        this.loadProfile = LoadProfile.from(config);
+        this.pageUrl = config.calculatorUrl();
+        this.recycleAfter = Math.max(1, config.getInt("recycle-after", 50));
+        this.leaseTimeoutNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getLong("lease-timeout-s", 900)));
+        this.leaseWaitMillis = TimeUnit.SECONDS.toMillis(Math.max(0, config.getLong("lease-wait-s", 30)));
+        this.maintenance = Executors.newFixedThreadPool(config.workers());
+    }
+    
+    /**
+     * Launch --workers browsers in parallel, then serve leases on --daemon-port
+     */
+    static BrowserDaemon start(SuiteConfig config) throws IOException {
+        BrowserDaemon daemon = new BrowserDaemon(config);
+        List<Future<?>> launches = new ArrayList<>();
+        for (int i = 0; i < config.workers(); i++) {
+            Slot slot = new Slot(i + 1);
+            daemon.slots.add(slot);
+            launches.add(daemon.maintenance.submit(() -> daemon.relaunch(slot)));
+        }
+        for (Future<?> launch : launches) {
+            try {
+                launch.get();
+            } catch (Exception e) {
+                daemon.close();
+                throw new IllegalStateException("Failed to launch a browser: " + e.getMessage(), e);
+            }
+        }
+        
+        daemon.server = HttpServer.create(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getInt("daemon-port", DEFAULT_PORT)), 0);
+        daemon.server.createContext("/", daemon::handle);
+        // Lease requests block while every browser is out, so each exchange gets its own thread
+        daemon.server.setExecutor(Executors.newCachedThreadPool());
+        daemon.server.start();
+        daemon.reaper.scheduleWithFixedDelay(daemon::reclaimExpiredLeases, 10, 10, TimeUnit.SECONDS);
+        return daemon;
+    }
+    
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> params = LocalCalculatorServer.parseQuery(exchange.getRequestURI().getRawQuery());
+            switch (exchange.getRequestURI().getPath()) {
+                case "/lease":
+                    lease(exchange);
+                    break;
+                case "/release":
+                    Slot slot = leased.remove(params.getOrDefault("lease", ""));
+                    if (slot == null) {
+                        respond(exchange, 404, "{\"error\":\"unknown lease\"}");
+                        return;
+                    }
+                    boolean discard = Boolean.parseBoolean(params.get("discard"));
+                    maintenance.execute(() -> recycle(slot, discard));
+                    respond(exchange, 200, "{}");
+                    break;
+                case "/status":
+                    JsonObject status = new JsonObject();
+                    status.addProperty("pageUrl", pageUrl);
+                    status.addProperty("sessions", slots.size());
+                    status.addProperty("idle", idle.size());
+                    status.addProperty("leased", leased.size());
+                    status.addProperty("launches", launches.get());
+                    status.addProperty("recycles", recycles.get());
+                    respond(exchange, 200, status.toString());
+                    break;
+                default:
+                    respond(exchange, 404, "{\"error\":\"not found\"}");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "{\"error\":\"daemon stopping\"}");
+        } catch (RuntimeException e) {
+            respond(exchange, 500, "{\"error\":" + new JsonPrimitive(String.valueOf(e.getMessage())) + "}");
+        }
+    }
+    
+    private void lease(HttpExchange exchange) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + leaseWaitMillis;
+        while (true) {
+            Slot slot = idle.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            if (slot == null) {
+                respond(exchange, 503, "{\"error\":\"no browser free within " + leaseWaitMillis / 1000 + " s\"}");
+                return;
+            }
+            if (!isHealthy(slot)) {
+                maintenance.execute(() -> recycle(slot, true));
+                continue;
+            }
+            slot.uses++;
+            slot.leaseId = slot.id + "-" + leaseCounter.incrementAndGet();
+            slot.leasedAtNanos = System.nanoTime();
+            leased.put(slot.leaseId, slot);
+            
+            JsonObject lease = new JsonObject();
+            lease.addProperty("lease", slot.leaseId);
+            lease.addProperty("debuggerAddress", "127.0.0.1:" + slot.port);
+            lease.addProperty("pageUrl", pageUrl);
+            lease.addProperty("uses", slot.uses);
+            respond(exchange, 200, lease.toString());
+            return;
+        }
+    }
+    
+    /**
+     * Put a returned browser back with a freshly loaded page, or replace it when it is used up or suspect
+     */
+    private void recycle(Slot slot, boolean discard) {
+        slot.leaseId = null;
+        try {
+            if (discard || slot.uses >= recycleAfter || !isHealthy(slot)) {
+                recycles.incrementAndGet();
+                relaunch(slot);
+            } else {
+                loadPage(slot.driver);
+            }
+            idle.offer(slot);
+        } catch (RuntimeException e) {
+            System.err.println("Browser " + slot.id + " could not be restored, retrying: " + e.getMessage());
+            reaper.schedule(() -> maintenance.execute(() -> recycle(slot, true)), 5, TimeUnit.SECONDS);
+        }
+    }
+    
+    private void reclaimExpiredLeases() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Slot> entry : leased.entrySet()) {
+            Slot slot = entry.getValue();
+            if (now - slot.leasedAtNanos > leaseTimeoutNanos && leased.remove(entry.getKey(), slot)) {
+                System.out.println("Lease " + entry.getKey() + " expired, replacing browser " + slot.id);
+                maintenance.execute(() -> recycle(slot, true));
+            }
+        }
+    }
+    
+    private void relaunch(Slot slot) {
+        quietlyQuit(slot.driver);
+        slot.port = freePort();
+        ChromeOptions options = BrowserSession.launchOptions(loadProfile);
+        options.addArguments("--remote-debugging-port=" + slot.port);
+        slot.driver = new ChromeDriver(options);
+        slot.uses = 0;
+        launches.incrementAndGet();
+        loadProfile.applyTo(slot.driver);
+        loadPage(slot.driver);
+    }
+    
+    private void loadPage(ChromeDriver driver) {
+        driver.get(pageUrl);
+        new WebDriverWait(driver, Duration.ofSeconds(30))
+            .until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
+    }
+    
+    private static boolean isHealthy(Slot slot) {
+        try {
+            Object state = ((JavascriptExecutor) slot.driver).executeScript("return document.readyState");
+            return state != null && slot.driver.findElements(By.name("cage")).size() == 1;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+    
+    private static void quietlyQuit(ChromeDriver driver) {
+        if (driver == null) {
+            return;
+        }
+        try {
+            driver.quit();
+        } catch (RuntimeException e) {
+            // Already gone, which is why it is being replaced
+        }
+    }
+    
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        reaper.shutdownNow();
+        maintenance.shutdownNow();
+        for (Slot slot : slots) {
+            quietlyQuit(slot.driver);
+        }
+    }
+    
+    /**
+     * Lease a browser from the daemon at daemonUrl, waiting while all of them are out
+     */
+    static Lease lease(String daemonUrl) throws IOException, InterruptedException {
+        JsonObject lease = JsonParser.parseString(send(daemonUrl, "/lease", Duration.ofMinutes(2))).getAsJsonObject();
+        return new Lease(daemonUrl, lease.get("lease").getAsString(), lease.get("debuggerAddress").getAsString(),
+            lease.get("pageUrl").getAsString());
+    }
+    
+    private static String send(String daemonUrl, String path, Duration timeout) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(daemonUrl + path))
+            .timeout(timeout)
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build();
+        HttpResponse<String> response = HttpClient.newHttpClient()
+            .send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != 200) {
+            throw new IOException("browser daemon answered " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+    
+    public static void main(String[] args) throws IOException {
+        SuiteConfig config = SuiteConfig.fromArgs(args);
+        LocalCalculatorServer stub = null;
+        if (config.useStub()) {
+            stub = LocalCalculatorServer.start(config);
+            config = config.with("url", stub.url());
+        }
+        System.out.println("Starting " + config.workers() + " browsers on " + config.calculatorUrl());
+        System.out.println("Load profile: " + LoadProfile.from(config));
+        BrowserDaemon daemon = start(config);
+        System.out.println("Browser daemon listening on " + daemon.url()
+            + ", run the suite with --browser-daemon=" + daemon.url());
+        
+        LocalCalculatorServer runningStub = stub;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            daemon.close();
+            if (runningStub != null) {
+                runningStub.close();
+            }
+        }));
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.List;
+
+/**
+ * Numbers read from the calculator's result table
+ * Calories is the daily calorie baseline, each band is the carbohydrate gram range for one percentage of calories
+ */
+record CalculationResult(double calories, List<CarbBand> bands) {
+    
+    record CarbBand(double percent, double minGrams, double maxGrams) {
+        
+        @Override
+        public String toString() {
+            return minGrams == maxGrams
+                ? String.format("%.0f%%=%.0fg", percent, minGrams)
+                : String.format("%.0f%%=%.0f-%.0fg", percent, minGrams, maxGrams);
+        }
+    }
+    
+    /**
+     * True when the page produced a calorie baseline and at least one carbohydrate band
+     */
+    boolean isComplete() {
+        return calories > 0 && !bands.isEmpty();
+    }
+    
+    /**
+     * Band for the given percentage, or null when the page did not show it
+     */
+    CarbBand band(double percent) {
+        for (CarbBand band : bands) {
+            if (Math.abs(band.percent() - percent) < 1e-9) {
+                return band;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Same calories and same gram ranges for every band, each within the given absolute tolerance
+     */
+    boolean matches(CalculationResult other, double tolerance) {
+        if (other == null || bands.size() != other.bands.size()
+                || Math.abs(calories - other.calories) > tolerance) {
+            return false;
+        }
+        for (CarbBand band : bands) {
+            CarbBand otherBand = other.band(band.percent());
+            if (otherBand == null
+                    || Math.abs(band.minGrams() - otherBand.minGrams()) > tolerance
+                    || Math.abs(band.maxGrams() - otherBand.maxGrams()) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%.0f kcal %s", calories, bands);
+    }
+}
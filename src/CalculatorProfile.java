@@ -0,0 +1,32 @@
+/**
+ * One set of calculator inputs, exactly as typed into the form
+ * Values are kept as strings so validation scenarios can submit non-numeric or out-of-range input.
+ * For US units the height is split into feet and inches and the weight is in pounds.
+ */
+record CalculatorProfile(String age, Sex sex, UnitSystem units,
+                         String height, String heightInches, String weight, String activity) {
+    
+    static CalculatorProfile metric(String age, Sex sex, String heightCm, String weightKg, String activity) {
+        return new CalculatorProfile(age, sex, UnitSystem.METRIC, heightCm, null, weightKg, activity);
+    }
+    
+    static CalculatorProfile us(String age, Sex sex, String feet, String inches, String pounds, String activity) {
+        return new CalculatorProfile(age, sex, UnitSystem.US, feet, inches, pounds, activity);
+    }
+    
+    CalculatorProfile withActivity(String newActivity) {
+        return new CalculatorProfile(age, sex, units, height, heightInches, weight, newActivity);
+    }
+    
+    CalculatorProfile withSex(Sex newSex) {
+        return new CalculatorProfile(age, newSex, units, height, heightInches, weight, activity);
+    }
+    
+    @Override
+    public String toString() {
+        String body = units == UnitSystem.METRIC
+            ? height + "cm/" + weight + "kg"
+            : height + "ft" + heightInches + "in/" + weight + "lb";
+        return "age=" + age + " " + sex + " " + body + " activity=" + activity;
+    }
+}
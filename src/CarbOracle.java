@@ -0,0 +1,208 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Pure-Java reference for the calculator's numbers
+ * BMR uses the Mifflin-St Jeor equation, TDEE scales it by the cactivity multiplier and each carbohydrate
+ * band is that share of calories at 4 kcal per gram. The per-profile methods and the bulk path work on
+ * primitives only so millions of profiles can be checked without allocating.
+ */
+final class CarbOracle {
+    
+    // Share of daily calories taken from carbohydrates, one result row each
+    static final int[] CARB_PERCENTAGES = {40, 55, 65, 75};
+    
+    static final double[] ACTIVITY_LEVELS = {1.2, 1.375, 1.55, 1.725};
+    
+    static final double CM_PER_INCH = 2.54;
+    static final double KG_PER_POUND = 0.45359237;
+    static final double KCAL_PER_GRAM_CARB = 4.0;
+    
+    // Accepted input ranges on the calculator form
+    static final double MIN_AGE = 18;
+    static final double MAX_AGE = 80;
+    
+    private static final int CHUNK = 1 << 16;
+    
+    private CarbOracle() {
+    }
+    
+    static double bmr(double age, boolean male, double heightCm, double weightKg) {
+        return 10 * weightKg + 6.25 * heightCm - 5 * age + (male ? 5 : -161);
+    }
+    
+    static double tdee(double age, boolean male, double heightCm, double weightKg, double activity) {
+        return bmr(age, male, heightCm, weightKg) * activity;
+    }
+    
+    static double carbGrams(double calories, double percent) {
+        return calories * percent / 100.0 / KCAL_PER_GRAM_CARB;
+    }
+    
+    /**
+     * Expected result for a profile exactly as the page would show it, or null when the page should reject it
+     */
+    static CalculationResult expected(CalculatorProfile profile) {
+        double age = parse(profile.age());
+        double heightCm;
+        double weightKg;
+        if (profile.units() == UnitSystem.US) {
+            double inches = profile.heightInches() == null || profile.heightInches().isBlank()
+                ? 0 : parse(profile.heightInches());
+            heightCm = (parse(profile.height()) * 12 + inches) * CM_PER_INCH;
+            weightKg = parse(profile.weight()) * KG_PER_POUND;
+        } else {
+            heightCm = parse(profile.height());
+            weightKg = parse(profile.weight());
+        }
+        if (!accepts(age, heightCm, weightKg)) {
+            return null;
+        }
+        
+        double calories = tdee(age, profile.sex() == Sex.MALE, heightCm, weightKg, parse(profile.activity()));
+        List<CalculationResult.CarbBand> bands = new ArrayList<>(CARB_PERCENTAGES.length);
+        for (int percent : CARB_PERCENTAGES) {
+            double grams = Math.round(carbGrams(calories, percent));
+            bands.add(new CalculationResult.CarbBand(percent, grams, grams));
+        }
+        return new CalculationResult(Math.round(calories), List.copyOf(bands));
+    }
+    
+    /**
+     * Same range checks the page applies before calculating, NaN counts as rejected
+     */
+    static boolean accepts(double age, double heightCm, double weightKg) {
+        return age >= MIN_AGE && age <= MAX_AGE && heightCm > 0 && weightKg > 0;
+    }
+    
+    private static double parse(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+    
+    /**
+     * Primitive columns for a batch of profiles, index i across all arrays is one profile
+     */
+    static final class ProfileBatch {
+        final double[] age;
+        final boolean[] male;
+        final double[] heightCm;
+        final double[] weightKg;
+        final double[] activity;
+        final double[] calories;
+        final double[] grams;
+        
+        ProfileBatch(int size) {
+            age = new double[size];
+            male = new boolean[size];
+            heightCm = new double[size];
+            weightKg = new double[size];
+            activity = new double[size];
+            calories = new double[size];
+            grams = new double[size * CARB_PERCENTAGES.length];
+        }
+        
+        int size() {
+            return age.length;
+        }
+        
+        /**
+         * Fill with accepted profiles drawn from a fixed seed, each chunk gets its own split stream
+         */
+        void generate(long seed) {
+            SplittableRandom root = new SplittableRandom(seed);
+            int chunks = (size() + CHUNK - 1) / CHUNK;
+            SplittableRandom[] streams = new SplittableRandom[chunks];
+            for (int c = 0; c < chunks; c++) {
+                streams[c] = root.split();
+            }
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                SplittableRandom random = streams[c];
+                int end = Math.min(size(), (c + 1) * CHUNK);
+                for (int i = c * CHUNK; i < end; i++) {
+                    age[i] = random.nextInt((int) MIN_AGE, (int) MAX_AGE + 1);
+                    male[i] = random.nextBoolean();
+                    heightCm[i] = random.nextInt(1400, 2201) / 10.0;
+                    weightKg[i] = random.nextInt(400, 1501) / 10.0;
+                    activity[i] = ACTIVITY_LEVELS[random.nextInt(ACTIVITY_LEVELS.length)];
+                }
+            });
+        }
+        
+        /**
+         * Compute calories and every carbohydrate band for all profiles in parallel chunks
+         */
+        void evaluate() {
+            int bandCount = CARB_PERCENTAGES.length;
+            int chunks = (size() + CHUNK - 1) / CHUNK;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int end = Math.min(size(), (c + 1) * CHUNK);
+                for (int i = c * CHUNK; i < end; i++) {
+                    double kcal = tdee(age[i], male[i], heightCm[i], weightKg[i], activity[i]);
+                    calories[i] = kcal;
+                    for (int b = 0; b < bandCount; b++) {
+                        grams[i * bandCount + b] = carbGrams(kcal, CARB_PERCENTAGES[b]);
+                    }
+                }
+            });
+        }
+        
+        CalculatorProfile toProfile(int i) {
+            return CalculatorProfile.metric(
+                String.valueOf((int) age[i]),
+                male[i] ? Sex.MALE : Sex.FEMALE,
+                formatNumber(heightCm[i]),
+                formatNumber(weightKg[i]),
+                formatNumber(activity[i]));
+        }
+    }
+    
+    /**
+     * Bulk mode: evaluate --profiles generated profiles and check the invariants every result must satisfy
+     */
+    static void runBulk(SuiteConfig config) {
+        int size = Math.max(1, config.getInt("profiles", 1_000_000));
+        long seed = config.getLong("seed", 42L);
+        
+        System.out.println("Reference oracle bulk run: " + size + " profiles, seed " + seed);
+        
+        ProfileBatch batch = new ProfileBatch(size);
+        long generateStart = System.nanoTime();
+        batch.generate(seed);
+        long evaluateStart = System.nanoTime();
+        batch.evaluate();
+        long evaluateEnd = System.nanoTime();
+        
+        int bandCount = CARB_PERCENTAGES.length;
+        long violations = IntStream.range(0, size).parallel().filter(i -> {
+            double kcal = batch.calories[i];
+            if (!(kcal > 0) || Double.isInfinite(kcal)) {
+                return true;
+            }
+            for (int b = 0; b < bandCount; b++) {
+                double grams = batch.grams[i * bandCount + b];
+                if (b > 0 && grams <= batch.grams[i * bandCount + b - 1]) {
+                    return true;
+                }
+                if (Math.abs(grams * KCAL_PER_GRAM_CARB * 100.0 / CARB_PERCENTAGES[b] - kcal) > 1e-6) {
+                    return true;
+                }
+            }
+            return false;
+        }).count();
+        
+        double evaluateSeconds = (evaluateEnd - evaluateStart) / 1e9;
+        System.out.println("Generated in " + (evaluateStart - generateStart) / 1_000_000 + " ms, evaluated in "
+            + (evaluateEnd - evaluateStart) / 1_000_000 + " ms (" + String.format("%,.0f", size / evaluateSeconds) + " profiles/s)");
+        System.out.println("Invariant violations: " + violations);
+    }
+    
+    static String formatNumber(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+}
@@ -1,614 +1,318 @@
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.By;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.support.ui.WebDriverWait;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.Select;
-import org.openqa.selenium.JavascriptExecutor;
-import org.openqa.selenium.Keys;
-import java.time.Duration;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Automated test suite for carbohydrate calculator website
- * Executes 6 end-to-end test scenarios covering comprehensive functionality
+ * Streams data-driven scenarios (scenarios/*.csv, *.json) through a pool of browser sessions
  */
 public class CarbohydrateCalculatorAutomation {
     
-    // WebDriver components for browser automation
-    private static WebDriver driver;
-    private static WebDriverWait wait;
-    private static JavascriptExecutor js;
-    
-    // Test configuration and tracking
-    private static final String CALCULATOR_URL = "https://www.calculator.net/carbohydrate-calculator.html";
-    private static int testsPassed = 0;
-    private static int testsFailed = 0;
-    private static boolean pageLoaded = false;
-    
     public static void main(String[] args) {
-        System.out.println("Carbohydrate Calculator Test Automation");
-        System.out.println("Running 6 automated end-to-end test cases: TC001, TC002, TC003, TC004, TC005, TC006");
-        System.out.println();
-        
-        setupWebDriver();
+        SuiteConfig config = SuiteConfig.fromArgs(args);
+        if (config.mode().equals("oracle")) {
+            CarbOracle.runBulk(config);
+            return;
+        }
+        if (config.mode().equals("diff")) {
+            try {
+                ResultBaseline.runDiff(config);
+            } catch (IOException e) {
+                System.err.println("Diff failed: " + e.getMessage());
+            }
+            return;
+        }
+        if (config.mode().equals("merge")) {
+            try {
+                new ShardMerge(config).run();
+            } catch (IOException e) {
+                System.err.println("Merge failed: " + e.getMessage());
+            }
+            return;
+        }
         
-        try {
-            runTC001_MultipleCalculationSessions();
-            runTC002_IncorrectValuesValidationRecovery();
-            runTC003_ActivityLevelImpactComparison();
-            runTC004_GenderBasedCalculationDifferences();
-            runTC005_USUnitsComprehensiveWorkflow();
-            runTC006_ExtremeBoundaryValueTesting();
-            
-        } catch (Exception e) {
-            System.err.println("Test execution failed: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            printTestSummary();
-            tearDown();
+        LocalCalculatorServer stub = startStub(config);
+        if (stub != null) {
+            config = config.with("url", stub.url());
         }
-    }
-    
-    /**
-     * Initialize ChromeDriver with optimized settings for automated testing
-     */
-    private static void setupWebDriver() {
-        try {
-            // Detect operating system and set appropriate ChromeDriver path
-            String os = System.getProperty("os.name").toLowerCase();
-            String chromedriverPath;
-            
-            if (os.contains("win")) {
-                chromedriverPath = "drivers/chromedriver.exe";
-            } else {
-                chromedriverPath = "drivers/chromedriver";
+        boolean differential = config.mode().equals("differential");
+        boolean boundaries = config.mode().equals("boundaries");
+        boolean equivalence = config.mode().equals("equivalence");
+        Tracing.start(config);
+        ResultCache.open(config);
+        ResultBaseline.open(config);
+        AdaptiveTimeouts.open(config);
+        RetryPolicy.configure(config);
+        
+        if (List.of("http", "load", "load-compare").contains(config.mode())) {
+            try {
+                System.out.println("Target: " + config.calculatorUrl());
+                if (config.mode().equals("http")) {
+                    new HttpFastPath(config).run();
+                } else if (config.mode().equals("load")) {
+                    new LoadGenerator(config).run();
+                } else {
+                    System.out.println("Load profile comparison, " + config.getInt("samples", 10) + " rounds");
+                    new LoadComparison(config).run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                System.err.println("Load test failed: " + e.getMessage());
+            } finally {
+                reportStepTimings(config);
+                ResultBaseline.close();
+                ResultCache.close();
+                Tracing.finish();
+                if (stub != null) {
+                    stub.close();
+                }
             }
-            
-            System.setProperty("webdriver.chrome.driver", chromedriverPath);
-            
-            // Configure Chrome options for stable automation
-            ChromeOptions options = new ChromeOptions();
-            options.addArguments("--no-sandbox");
-            options.addArguments("--disable-dev-shm-usage");
-            options.addArguments("--disable-extensions");
-            options.addArguments("--remote-allow-origins=*");
-            options.addArguments("--disable-blink-features=AutomationControlled");
-            options.addArguments("--start-maximized");
-            options.addArguments("--disable-images");
-            options.addArguments("--disable-plugins");
-            options.setExperimentalOption("useAutomationExtension", false);
-            options.setExperimentalOption("excludeSwitches", new String[]{"enable-automation"});
-            
-            driver = new ChromeDriver(options);
-            wait = new WebDriverWait(driver, Duration.ofSeconds(8));
-            js = (JavascriptExecutor) driver;
-            
-            driver.manage().window().maximize();
-            
-            System.out.println("WebDriver initialized successfully");
-            
-        } catch (Exception e) {
-            System.err.println("Failed to initialize WebDriver: " + e.getMessage());
-            System.exit(1);
+            return;
         }
-    }
-    
-    /**
-     * Navigate to calculator page or reset form for subsequent tests
-     * Optimizes performance by avoiding repeated page loads
-     */
-    private static void navigateToCalculatorSmart() {
-        if (!pageLoaded) {
-            // Initial page load with complete readiness check
-            driver.get(CALCULATOR_URL);
-            wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            wait.until(webDriver -> js.executeScript("return document.readyState").equals("complete"));
-            pageLoaded = true;
-            fastWait(800);
+        
+        System.out.println("Carbohydrate Calculator Test Automation");
+        if (differential) {
+            System.out.println("Differential check: " + config.getInt("samples", 20) + " sampled profiles against the reference oracle");
+        } else if (equivalence) {
+            System.out.println("Unit equivalence: " + config.getInt("samples", 20) + " generated profiles on the metric and US tabs");
+        } else if (boundaries) {
+            System.out.println("Boundary search: accepted ranges of age, height and weight per unit system");
+        } else if (config.mode().equals("combinatorial")) {
+            System.out.println("Running generated " + config.getInt("strength", 2) + "-way covering-array scenarios");
         } else {
-            // Reset form values for subsequent tests
-            js.executeScript("document.getElementById('cage').value = '25';");
-            js.executeScript("document.getElementById('csex1').checked = false;");
-            js.executeScript("document.getElementById('csex2').checked = false;");
-            fastWait(200);
+            System.out.println("Running data-driven scenarios from: " + config.scenarioLocations());
         }
-        
-        js.executeScript("window.scrollTo(0, 0);");
-    }
-    
-    private static void fastScrollAndClick(WebElement element) {
-        js.executeScript("arguments[0].scrollIntoView({behavior: 'instant', block: 'center'});", element);
-        fastWait(100);
-        try {
-            element.click();
-        } catch (Exception e) {
-            js.executeScript("arguments[0].click();", element);
+        Sharding sharding = Sharding.from(config);
+        if (sharding.enabled()) {
+            System.out.println("Shard: " + sharding.label() + (sharding.stealing()
+                ? ", stealing through " + config.get("shard-steal", null) : ""));
         }
-    }
-    
-    private static void fastInput(WebElement element, String text) {
-        try {
-            element.clear();
-            element.sendKeys(text);
-            fastWait(100);
-        } catch (Exception e) {
-            js.executeScript("arguments[0].value = arguments[1];", element, text);
+        System.out.println("Workers: " + config.workers());
+        System.out.println("Load profile: " + LoadProfile.from(config));
+        System.out.println("Result timeouts: " + AdaptiveTimeouts.describe(config.resultTimeout())
+            + ", retry budget " + config.getInt("retry-budget", 10));
+        if (config.get("browser-daemon", null) != null) {
+            System.out.println("Browsers: leased from " + config.get("browser-daemon", null));
         }
-    }
-
-    /**
-     * TC001: Tests multiple calculation sessions workflow
-     * Verifies consecutive calculations with different user profiles work correctly
-     */
-    private static void runTC001_MultipleCalculationSessions() {
-        System.out.println("--- TC001: Multiple Calculation Sessions Workflow ---");
+        System.out.println("Target: " + config.calculatorUrl() + (stub != null ? " (local stand-in, " + stub.latency() + ")" : ""));
+        System.out.println();
+        
+        DriverPool pool = setupDriverPool(config);
+        ResultReporter.start(config);
+        FailureArtifacts.start(config);
+        long startNanos = System.nanoTime();
         
         try {
-            navigateToCalculatorSmart();
-            
-            WebElement ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "25");
-            
-            WebElement genderMale = driver.findElement(By.id("csex1"));
-            js.executeScript("arguments[0].checked = true;", genderMale);
-            
-            WebElement heightCm = driver.findElement(By.name("cheightmeter"));
-            fastInput(heightCm, "180");
-            
-            WebElement weightKg = driver.findElement(By.name("ckg"));
-            fastInput(weightKg, "75");
-            
-            WebElement activityDropdown = driver.findElement(By.name("cactivity"));
-            Select activitySelect = new Select(activityDropdown);
-            activitySelect.selectByValue("1.55");
-            
-            WebElement calculateButton = driver.findElement(By.name("x"));
-            fastScrollAndClick(calculateButton);
-            fastWait(2000);
-            
-            String firstResult = driver.getPageSource();
-            boolean firstCalculationSuccess = firstResult.contains("gram") && firstResult.contains("carbohydrate");
-            
-            navigateToCalculatorSmart();
-            
-            ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "45");
-            
-            WebElement genderFemale = driver.findElement(By.id("csex2"));
-            js.executeScript("arguments[0].checked = true;", genderFemale);
-            
-            heightCm = driver.findElement(By.name("cheightmeter"));
-            fastInput(heightCm, "165");
-            
-            weightKg = driver.findElement(By.name("ckg"));
-            fastInput(weightKg, "60");
-            
-            activitySelect = new Select(driver.findElement(By.name("cactivity")));
-            activitySelect.selectByValue("1.725");
-            
-            calculateButton = driver.findElement(By.name("x"));
-            fastScrollAndClick(calculateButton);
-            fastWait(2000);
-            
-            String secondResult = driver.getPageSource();
-            boolean secondCalculationSuccess = secondResult.contains("gram") && secondResult.contains("carbohydrate");
+            if (differential) {
+                new DifferentialCheck(pool, config, sharding).run();
+                return;
+            }
+            if (boundaries) {
+                new BoundarySearch(config).run(pool);
+                return;
+            }
+            if (equivalence) {
+                new EquivalenceCheck(pool, config, sharding).run();
+                return;
+            }
             
-            if (firstCalculationSuccess && secondCalculationSuccess) {
-                System.out.println("TC001 PASSED: Multiple calculation sessions work correctly");
-                System.out.println("  Both calculations completed successfully with different profiles");
-                testsPassed++;
+            if (config.mode().equals("combinatorial")) {
+                List<Scenario> scenarios = InputSpace.generate(config);
+                System.out.println("Generated " + scenarios.size() + " scenarios, riskiest first");
+                String output = config.get("combinatorial-output", null);
+                if (output != null) {
+                    InputSpace.writeCsv(scenarios, Path.of(output));
+                    System.out.println("Scenario plan written to " + output);
+                }
+                sharding.plan(scenarios.stream().map(Scenario::id).toList());
+                try (Sharding.Selection<Scenario> selection = sharding.select(scenarios::iterator, Scenario::id)) {
+                    runScenariosInParallel(pool, selection, config);
+                }
             } else {
-                System.out.println("TC001 FAILED: Multiple calculation sessions failed");
-                testsFailed++;
+                List<Path> files = Scenario.files(config.scenarioLocations());
+                if (sharding.enabled()) {
+                    // Every shard needs the full id list to compute the same assignment
+                    List<String> ids = new ArrayList<>();
+                    try (Scenario.Reader reader = new Scenario.Reader(files)) {
+                        reader.forEachRemaining(scenario -> ids.add(scenario.id()));
+                    }
+                    sharding.plan(ids);
+                }
+                try (Sharding.Selection<Scenario> selection = sharding.select(() -> new Scenario.Reader(files),
+                        Scenario::id)) {
+                    runScenariosInParallel(pool, selection, config);
+                }
             }
             
         } catch (Exception e) {
-            System.out.println("TC001 FAILED: Exception occurred - " + e.getMessage());
-            testsFailed++;
+            System.err.println("Test execution failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            System.out.println("\nWall-clock time: " + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+            if (!differential && !boundaries && !equivalence) {
+                printTestSummary();
+            }
+            RetryPolicy.printSummary();
+            reportStepTimings(config);
+            AdaptiveTimeouts.close();
+            ResultBaseline.close();
+            ResultCache.close();
+            FailureArtifacts.finish();
+            sharding.report();
+            ResultReporter.finish();
+            tearDown(pool);
+            Tracing.finish();
+            if (stub != null) {
+                stub.close();
+            }
         }
     }
     
     /**
-     * TC002: Tests incorrect values validation and recovery
-     * Verifies comprehensive error handling with invalid inputs and recovery workflow
+     * Start the embedded calculator stand-in when --target=stub
      */
-    private static void runTC002_IncorrectValuesValidationRecovery() {
-        System.out.println("--- TC002: Incorrect Values Validation and Recovery ---");
-        
-        try {
-            navigateToCalculatorSmart();
-            
-            WebElement ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "abc");
-            ageField.sendKeys(Keys.TAB);
-            fastWait(800);
-            
-            String pageAfterInvalidAge = driver.getPageSource().toLowerCase();
-            boolean ageValidationTriggered = pageAfterInvalidAge.contains("positive numbers only") || 
-                                           pageAfterInvalidAge.contains("invalid") ||
-                                           pageAfterInvalidAge.contains("number");
-            
-            fastInput(ageField, "150");
-            
-            WebElement genderMale = driver.findElement(By.id("csex1"));
-            js.executeScript("arguments[0].checked = true;", genderMale);
-            
-            WebElement heightCm = driver.findElement(By.name("cheightmeter"));
-            fastInput(heightCm, "180");
-            
-            WebElement weightKg = driver.findElement(By.name("ckg"));
-            fastInput(weightKg, "75");
-            
-            WebElement activityDropdown = driver.findElement(By.name("cactivity"));
-            Select activitySelect = new Select(activityDropdown);
-            activitySelect.selectByValue("1.55");
-            
-            WebElement calculateButton = driver.findElement(By.name("x"));
-            fastScrollAndClick(calculateButton);
-            fastWait(1500);
-            
-            String pageAfterInvalidAgeCalc = driver.getPageSource().toLowerCase();
-            boolean outOfBoundsValidation = pageAfterInvalidAgeCalc.contains("out of bounds") ||
-                                          pageAfterInvalidAgeCalc.contains("invalid age") ||
-                                          !pageAfterInvalidAgeCalc.contains("gram");
-            
-            navigateToCalculatorSmart();
-            
-            ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "25");
-            
-            js.executeScript("arguments[0].checked = true;", driver.findElement(By.id("csex1")));
-            fastInput(driver.findElement(By.name("cheightmeter")), "175");
-            fastInput(driver.findElement(By.name("ckg")), "70");
-            
-            activitySelect = new Select(driver.findElement(By.name("cactivity")));
-            activitySelect.selectByValue("1.55");
-            
-            WebElement weightField = driver.findElement(By.name("ckg"));
-            fastInput(weightField, "-50");
-            
-            calculateButton = driver.findElement(By.name("x"));
-            fastScrollAndClick(calculateButton);
-            fastWait(1500);
-            
-            String pageAfterNegativeWeight = driver.getPageSource().toLowerCase();
-            boolean negativeWeightHandled = !pageAfterNegativeWeight.contains("gram") ||
-                                          pageAfterNegativeWeight.contains("positive");
-            
-            navigateToCalculatorSmart();
-            
-            ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "30");
-            
-            js.executeScript("arguments[0].checked = true;", driver.findElement(By.id("csex2")));
-            fastInput(driver.findElement(By.name("cheightmeter")), "165");
-            fastInput(driver.findElement(By.name("ckg")), "60");
-            
-            activitySelect = new Select(driver.findElement(By.name("cactivity")));
-            activitySelect.selectByValue("1.375");
-            
-            calculateButton = driver.findElement(By.name("x"));
-            fastScrollAndClick(calculateButton);
-            fastWait(2000);
-            
-            String finalResult = driver.getPageSource();
-            boolean finalCalculationSuccess = finalResult.contains("gram") && finalResult.contains("carbohydrate");
-            
-            boolean overallValidationWorking = (ageValidationTriggered || outOfBoundsValidation) && finalCalculationSuccess;
-            
-            if (overallValidationWorking) {
-                System.out.println("TC002 PASSED: Incorrect values validation and recovery successful");
-                System.out.println("  Invalid inputs detected and valid calculation completed");
-                testsPassed++;
-            } else {
-                System.out.println("TC002 FAILED: Validation or recovery workflow failed");
-                testsFailed++;
-            }
-            
-        } catch (Exception e) {
-            System.out.println("TC002 FAILED: Exception occurred - " + e.getMessage());
-            testsFailed++;
+    private static LocalCalculatorServer startStub(SuiteConfig config) {
+        if (!config.useStub()) {
+            return null;
         }
-    }
-    
-    private static void runTC003_ActivityLevelImpactComparison() {
-        System.out.println("--- TC003: Activity Level Impact Comparison ---");
-        
         try {
-            navigateToCalculatorSmart();
-            
-            WebElement ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "30");
-            
-            WebElement genderMale = driver.findElement(By.id("csex1"));
-            js.executeScript("arguments[0].checked = true;", genderMale);
-            
-            WebElement heightCm = driver.findElement(By.name("cheightmeter"));
-            fastInput(heightCm, "175");
-            
-            WebElement weightKg = driver.findElement(By.name("ckg"));
-            fastInput(weightKg, "75");
-            
-            WebElement activityDropdown = driver.findElement(By.name("cactivity"));
-            Select activitySelect = new Select(activityDropdown);
-            activitySelect.selectByValue("1.2");
-            
-            WebElement calculateButton = driver.findElement(By.name("x"));
-            fastScrollAndClick(calculateButton);
-            fastWait(2000);
-            
-            String sedentaryResult = driver.getPageSource();
-            boolean sedentaryCalculationSuccess = sedentaryResult.contains("gram") && sedentaryResult.contains("carbohydrate");
-            
-            navigateToCalculatorSmart();
-            
-            ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "30");
-            js.executeScript("arguments[0].checked = true;", driver.findElement(By.id("csex1")));
-            fastInput(driver.findElement(By.name("cheightmeter")), "175");
-            fastInput(driver.findElement(By.name("ckg")), "75");
-            
-            activitySelect = new Select(driver.findElement(By.name("cactivity")));
-            activitySelect.selectByValue("1.725");
-            
-            fastScrollAndClick(driver.findElement(By.name("x")));
-            fastWait(2000);
-            
-            String activeResult = driver.getPageSource();
-            boolean activeCalculationSuccess = activeResult.contains("gram") && activeResult.contains("carbohydrate");
-            
-            boolean resultsDifferent = !sedentaryResult.equals(activeResult);
-            
-            if (sedentaryCalculationSuccess && activeCalculationSuccess && resultsDifferent) {
-                System.out.println("TC003 PASSED: Activity level impact comparison successful");
-                System.out.println("  Different activity levels produced different carb recommendations");
-                testsPassed++;
-            } else {
-                System.out.println("TC003 FAILED: Activity level impact not detected");
-                testsFailed++;
-            }
-            
-        } catch (Exception e) {
-            System.out.println("TC003 FAILED: Exception occurred - " + e.getMessage());
-            testsFailed++;
+            return LocalCalculatorServer.start(config);
+        } catch (IOException e) {
+            System.err.println("Failed to start local calculator stand-in: " + e.getMessage());
+            System.exit(1);
+            return null;
         }
     }
     
-    private static void runTC004_GenderBasedCalculationDifferences() {
-        System.out.println("--- TC004: Gender-Based Calculation Differences ---");
-        
+    /**
+     * Start the bounded ChromeDriver pool, one session per worker thread
+     */
+    private static DriverPool setupDriverPool(SuiteConfig config) {
         try {
-            navigateToCalculatorSmart();
-            
-            WebElement ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "35");
-            
-            WebElement genderMale = driver.findElement(By.id("csex1"));
-            js.executeScript("arguments[0].checked = true;", genderMale);
-            
-            WebElement heightCm = driver.findElement(By.name("cheightmeter"));
-            fastInput(heightCm, "170");
-            
-            WebElement weightKg = driver.findElement(By.name("ckg"));
-            fastInput(weightKg, "70");
-            
-            WebElement activityDropdown = driver.findElement(By.name("cactivity"));
-            Select activitySelect = new Select(activityDropdown);
-            activitySelect.selectByValue("1.55");
-            
-            WebElement calculateButton = driver.findElement(By.name("x"));
-            fastScrollAndClick(calculateButton);
-            fastWait(2000);
-            
-            String maleResult = driver.getPageSource();
-            boolean maleCalculationSuccess = maleResult.contains("gram") && maleResult.contains("carbohydrate");
-            
-            navigateToCalculatorSmart();
-            
-            ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "35");
-            
-            WebElement genderFemale = driver.findElement(By.id("csex2"));
-            js.executeScript("arguments[0].checked = true;", genderFemale);
-            
-            fastInput(driver.findElement(By.name("cheightmeter")), "170");
-            fastInput(driver.findElement(By.name("ckg")), "70");
-            
-            activitySelect = new Select(driver.findElement(By.name("cactivity")));
-            activitySelect.selectByValue("1.55");
-            
-            fastScrollAndClick(driver.findElement(By.name("x")));
-            fastWait(2000);
-            
-            String femaleResult = driver.getPageSource();
-            boolean femaleCalculationSuccess = femaleResult.contains("gram") && femaleResult.contains("carbohydrate");
-            
-            boolean resultsDifferent = !maleResult.equals(femaleResult);
-            
-            if (maleCalculationSuccess && femaleCalculationSuccess && resultsDifferent) {
-                System.out.println("TC004 PASSED: Gender-based calculation differences verified");
-                System.out.println("  Male and female profiles produced different carb recommendations");
-                testsPassed++;
-            } else {
-                System.out.println("TC004 FAILED: Gender impact not detected or calculations failed");
-                testsFailed++;
-            }
-            
+            DriverPool pool = new DriverPool(config);
+            System.out.println("WebDriver pool initialized successfully (" + pool.size() + " sessions)");
+            return pool;
         } catch (Exception e) {
-            System.out.println("TC004 FAILED: Exception occurred - " + e.getMessage());
-            testsFailed++;
+            System.err.println("Failed to initialize WebDriver: " + e.getMessage());
+            System.exit(1);
+            return null;
         }
     }
     
     /**
-     * TC005: Tests US Imperial units comprehensive workflow
-     * Verifies complete calculation workflow using feet/inches and pounds
+     * Stream scenarios over a fixed set of worker threads
+     * Scenarios are taken one at a time and at most two per worker are queued, so large files never sit in memory.
+     * Each scenario borrows a pooled session for its whole run and hands it back afterwards. With
+     * --time-budget-s, scenarios not yet handed to a worker are skipped once the budget is spent.
      */
-    private static void runTC005_USUnitsComprehensiveWorkflow() {
-        System.out.println("--- TC005: US Units Mode Comprehensive Workflow ---");
+    private static void runScenariosInParallel(DriverPool pool, Iterator<Scenario> scenarios, SuiteConfig config)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(config.workers());
+        Semaphore queued = new Semaphore(config.workers() * 2);
+        long budgetNanos = TimeUnit.SECONDS.toNanos(config.getLong("time-budget-s", 0));
+        long deadline = System.nanoTime() + budgetNanos;
         
         try {
-            navigateToCalculatorSmart();
-            
-            // Switch to US Imperial units mode
-            WebElement usUnitsLink = wait.until(ExpectedConditions.elementToBeClickable(By.linkText("US Units")));
-            fastScrollAndClick(usUnitsLink);
-            fastWait(1500);
-            
-            WebElement ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "28");
-            
-            WebElement genderFemale = driver.findElement(By.id("csex2"));
-            js.executeScript("arguments[0].checked = true;", genderFemale);
-            
-            WebElement heightFeet = driver.findElement(By.name("cheightfeet"));
-            fastInput(heightFeet, "5");
-            
-            WebElement heightInches = driver.findElement(By.name("cheightinch"));
-            fastInput(heightInches, "6");
-            
-            WebElement weightPounds = driver.findElement(By.name("cpound"));
-            fastInput(weightPounds, "140");
-            
-            WebElement activityDropdown = driver.findElement(By.name("cactivity"));
-            Select activitySelect = new Select(activityDropdown);
-            activitySelect.selectByValue("1.375");
-            
-            WebElement calculateButton = driver.findElement(By.name("x"));
-            fastScrollAndClick(calculateButton);
-            fastWait(2000);
-            
-            String usUnitsResult = driver.getPageSource();
-            boolean usCalculationSuccess = usUnitsResult.contains("gram") && usUnitsResult.contains("carbohydrate");
-            
-            pageLoaded = false;
-            navigateToCalculatorSmart();
-            
-            WebElement metricUnitsLink = wait.until(ExpectedConditions.elementToBeClickable(By.linkText("Metric Units")));
-            fastScrollAndClick(metricUnitsLink);
-            fastWait(1500);
-            
-            ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "28");
-            
-            js.executeScript("arguments[0].checked = true;", driver.findElement(By.id("csex2")));
-            
-            WebElement heightCm = driver.findElement(By.name("cheightmeter"));
-            fastInput(heightCm, "168");
-            
-            WebElement weightKg = driver.findElement(By.name("ckg"));
-            fastInput(weightKg, "63.5");
-            
-            activitySelect = new Select(driver.findElement(By.name("cactivity")));
-            activitySelect.selectByValue("1.375");
-            
-            fastScrollAndClick(driver.findElement(By.name("x")));
-            fastWait(2000);
-            
-            String metricResult = driver.getPageSource();
-            boolean metricCalculationSuccess = metricResult.contains("gram") && metricResult.contains("carbohydrate");
-            
-            if (usCalculationSuccess && metricCalculationSuccess) {
-                System.out.println("TC005 PASSED: US units mode comprehensive workflow successful");
-                System.out.println("  Both US Imperial and Metric units calculations completed");
-                testsPassed++;
-            } else {
-                System.out.println("TC005 FAILED: US units workflow failed");
-                testsFailed++;
+            while (scenarios.hasNext()) {
+                Scenario scenario = scenarios.next();
+                queued.acquire();
+                if (budgetNanos > 0 && System.nanoTime() - deadline >= 0) {
+                    int skipped = 1;
+                    while (scenarios.hasNext()) {
+                        scenarios.next();
+                        skipped++;
+                    }
+                    System.out.println("Time budget of " + config.getLong("time-budget-s", 0) + " s spent, "
+                        + skipped + " scenario(s) not started");
+                    queued.release();
+                    break;
+                }
+                executor.execute(() -> {
+                    try {
+                        runScenario(pool, scenario, config);
+                    } finally {
+                        queued.release();
+                    }
+                });
             }
-            
-        } catch (Exception e) {
-            System.out.println("TC005 FAILED: Exception occurred - " + e.getMessage());
-            testsFailed++;
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
         }
     }
     
-    private static void runTC006_ExtremeBoundaryValueTesting() {
-        System.out.println("--- TC006: Extreme Boundary Value Testing ---");
+    private static void runScenario(DriverPool pool, Scenario scenario, SuiteConfig config) {
+        System.out.println("--- " + scenario.id() + ": " + scenario.title() + " ---");
         
-        try {
-            navigateToCalculatorSmart();
-            
-            WebElement ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "80");
-            
-            WebElement genderMale = driver.findElement(By.id("csex1"));
-            js.executeScript("arguments[0].checked = true;", genderMale);
-            
-            WebElement heightCm = driver.findElement(By.name("cheightmeter"));
-            fastInput(heightCm, "220");
-            
-            WebElement weightKg = driver.findElement(By.name("ckg"));
-            fastInput(weightKg, "150");
-            
-            WebElement activityDropdown = driver.findElement(By.name("cactivity"));
-            Select activitySelect = new Select(activityDropdown);
-            activitySelect.selectByValue("1.725");
-            
-            WebElement calculateButton = driver.findElement(By.name("x"));
-            fastScrollAndClick(calculateButton);
-            fastWait(2000);
-            
-            String maxBoundaryResult = driver.getPageSource();
-            boolean maxBoundarySuccess = maxBoundaryResult.contains("gram") && maxBoundaryResult.contains("carbohydrate");
-            
-            navigateToCalculatorSmart();
-            
-            ageField = wait.until(ExpectedConditions.presenceOfElementLocated(By.name("cage")));
-            fastInput(ageField, "18");
-            
-            WebElement genderFemale = driver.findElement(By.id("csex2"));
-            js.executeScript("arguments[0].checked = true;", genderFemale);
-            
-            fastInput(driver.findElement(By.name("cheightmeter")), "140");
-            fastInput(driver.findElement(By.name("ckg")), "40");
-            
-            activitySelect = new Select(driver.findElement(By.name("cactivity")));
-            activitySelect.selectByValue("1.2");
-            
-            fastScrollAndClick(driver.findElement(By.name("x")));
-            fastWait(2000);
-            
-            String minBoundaryResult = driver.getPageSource();
-            boolean minBoundarySuccess = minBoundaryResult.contains("gram") && minBoundaryResult.contains("carbohydrate");
+        long startNanos = System.nanoTime();
+        Span span = Tracing.tracer().spanBuilder(scenario.id())
+            .setNoParent()
+            .setAttribute("test.id", scenario.id())
+            .setAttribute("test.title", scenario.title())
+            .setAttribute("test.steps", scenario.steps().size())
+            .startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            BrowserSession session = pool.acquire();
+            span.setAttribute("browser.session", session.id());
+            List<String> failures;
+            try {
+                failures = new ScenarioEngine(session, config).run(scenario);
+            } finally {
+                StepTimings.time("teardown", () -> pool.release(session));
+            }
             
-            if (maxBoundarySuccess && minBoundarySuccess) {
-                System.out.println("TC006 PASSED: Extreme boundary value testing successful");
-                System.out.println("  Both maximum and minimum boundary values handled correctly");
-                testsPassed++;
+            if (failures.isEmpty()) {
+                System.out.println(scenario.id() + " PASSED: " + scenario.title()
+                    + "\n  All " + scenario.steps().size() + " steps met their expected outcome");
+                span.setAttribute("test.outcome", "passed");
             } else {
-                System.out.println("TC006 FAILED: Extreme boundary value handling failed");
-                testsFailed++;
+                System.out.println(scenario.id() + " FAILED: " + scenario.title()
+                    + "\n  " + String.join("\n  ", failures));
+                span.setAttribute("test.outcome", "failed");
+                span.setStatus(StatusCode.ERROR, failures.size() + " step(s) failed");
             }
+            ResultReporter.test(new ResultReporter.TestResult(scenario.id(), scenario.title(), scenario.steps().size(),
+                failures, null, System.nanoTime() - startNanos, Instant.now(), ResultReporter.currentTraceId()));
             
         } catch (Exception e) {
-            System.out.println("TC006 FAILED: Exception occurred - " + e.getMessage());
-            testsFailed++;
-        }
-    }
-    
-    private static void fastWait(int milliseconds) {
-        try {
-            Thread.sleep(milliseconds);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            String kind = RetryPolicy.FailureKind.of(e).label();
+            System.out.println(scenario.id() + " FAILED: " + kind + " - " + e.getMessage());
+            ResultReporter.test(new ResultReporter.TestResult(scenario.id(), scenario.title(), scenario.steps().size(),
+                List.of(), kind + ": " + e.getMessage(), System.nanoTime() - startNanos, Instant.now(),
+                ResultReporter.currentTraceId()));
+            span.setAttribute("test.outcome", "error");
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, String.valueOf(e.getMessage()));
+        } finally {
+            span.end();
         }
     }
     
     private static void printTestSummary() {
+        int passed = ResultReporter.passed();
+        int failed = ResultReporter.failed();
+        
         System.out.println("\nTest Execution Summary");
-        System.out.println("Total Tests: " + (testsPassed + testsFailed));
-        System.out.println("Tests Passed: " + testsPassed);
-        System.out.println("Tests Failed: " + testsFailed);
+        System.out.println("Total Tests: " + (passed + failed));
+        System.out.println("Tests Passed: " + passed);
+        System.out.println("Tests Failed: " + failed);
         
-        if (testsPassed + testsFailed > 0) {
-            System.out.println("Pass Rate: " + String.format("%.1f", (testsPassed * 100.0 / (testsPassed + testsFailed))) + "%");
+        if (passed + failed > 0) {
+            System.out.println("Pass Rate: " + String.format("%.1f", (passed * 100.0 / (passed + failed))) + "%");
         }
         
-        if (testsFailed == 0) {
+        if (failed == 0) {
             System.out.println("All tests passed successfully");
         } else {
             System.out.println("Some tests failed - review results above");
@@ -616,9 +320,31 @@ public class CarbohydrateCalculatorAutomation {
         System.out.println("=======================================");
     }
     
-    private static void tearDown() {
-        if (driver != null) {
-            driver.quit();
+    /**
+     * Print per-step latency percentiles and save them as JSON for comparing runs
+     */
+    private static void reportStepTimings(SuiteConfig config) {
+        StepTimings.printSummary();
+        ElementCache.printSummary();
+        try {
+            Path report = StepTimings.writeReport(config);
+            if (report != null) {
+                System.out.println("Step latency report: " + report);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write step latency report: " + e.getMessage());
+        }
+    }
+    
+    private static void tearDown(DriverPool pool) {
+        if (pool != null) {
+            Span span = Tracing.tracer().spanBuilder("teardown").setNoParent()
+                .setAttribute("browser.sessions", pool.size()).startSpan();
+            try (Scope ignored = span.makeCurrent()) {
+                pool.close();
+            } finally {
+                span.end();
+            }
             System.out.println("WebDriver closed successfully");
         }
     }
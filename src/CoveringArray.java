@@ -0,0 +1,207 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Greedy t-way covering array over small integer domains, weighted by risk
+ * Every combination of `strength` values across any `strength` dimensions appears in at least one row.
+ * Rows are built one at a time, AETG style: several random candidates are filled in dimension by dimension,
+ * each value picked to cover the most uncovered risk weight, and the heaviest candidate is kept. So the
+ * first rows cover the riskiest combinations and any prefix of the result is a good schedule on its own.
+ * A value with weight 0 is never placed in a row; callers use that for invalid classes tested separately.
+ */
+final class CoveringArray {
+    
+    private static final int BITS_PER_DIMENSION = 4;
+    
+    private final double[][] weights;
+    private final int strength;
+    private final int candidates;
+    private final long seed;
+    
+    /**
+     * weights[d][v] is the risk of value v in dimension d, at most 15 values per dimension
+     */
+    CoveringArray(double[][] weights, int strength, int candidates, long seed) {
+        if (weights.length > Long.SIZE / BITS_PER_DIMENSION) {
+            throw new IllegalArgumentException("At most " + Long.SIZE / BITS_PER_DIMENSION + " dimensions");
+        }
+        for (double[] values : weights) {
+            if (values.length >= 1 << BITS_PER_DIMENSION) {
+                throw new IllegalArgumentException("At most " + ((1 << BITS_PER_DIMENSION) - 1) + " values per dimension");
+            }
+        }
+        this.weights = weights;
+        this.strength = Math.max(1, Math.min(strength, weights.length));
+        this.candidates = Math.max(1, candidates);
+        this.seed = seed;
+    }
+    
+    /**
+     * Rows of value indices, one per test, riskiest first
+     */
+    List<int[]> generate() {
+        Set<Long> uncovered = new HashSet<>();
+        enumerate(0, 0, 0L, uncovered);
+        
+        SplittableRandom random = new SplittableRandom(seed);
+        List<int[]> rows = new ArrayList<>();
+        while (!uncovered.isEmpty()) {
+            int[] best = null;
+            double bestScore = -1;
+            for (int c = 0; c < candidates; c++) {
+                int[] row = candidate(uncovered, random, 0L);
+                double score = newlyCovered(row, uncovered, false);
+                if (score > bestScore) {
+                    best = row;
+                    bestScore = score;
+                }
+            }
+            if (bestScore <= 0) {
+                // Greedy choices can miss every remaining tuple, start from one of them so each row makes progress
+                best = candidate(uncovered, random, uncovered.iterator().next());
+            }
+            newlyCovered(best, uncovered, true);
+            rows.add(best);
+        }
+        return rows;
+    }
+    
+    /**
+     * Fill a row dimension by dimension in random order, each time with the value worth the most uncovered weight
+     * Dimensions fixed by the start tuple keep its values.
+     */
+    private int[] candidate(Set<Long> uncovered, SplittableRandom random, long start) {
+        int dimensions = weights.length;
+        int[] order = new int[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            order[i] = i;
+        }
+        for (int i = dimensions - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        
+        int[] row = new int[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            row[d] = valueOf(start, d);
+        }
+        for (int dimension : order) {
+            if (row[dimension] >= 0) {
+                continue;
+            }
+            int bestValue = -1;
+            double bestGain = -1;
+            int ties = 0;
+            for (int value = 0; value < weights[dimension].length; value++) {
+                if (weights[dimension][value] <= 0) {
+                    continue;
+                }
+                row[dimension] = value;
+                double gain = compatibleWeight(row, dimension, uncovered);
+                if (gain > bestGain) {
+                    bestValue = value;
+                    bestGain = gain;
+                    ties = 1;
+                } else if (gain == bestGain && random.nextInt(++ties) == 0) {
+                    bestValue = value;
+                }
+            }
+            row[dimension] = bestValue;
+        }
+        return row;
+    }
+    
+    /**
+     * Weight of uncovered tuples that contain the row's value for `dimension` and agree with every assigned value
+     */
+    private double compatibleWeight(int[] row, int dimension, Set<Long> uncovered) {
+        double total = 0;
+        for (long tuple : uncovered) {
+            if (valueOf(tuple, dimension) != row[dimension]) {
+                continue;
+            }
+            boolean compatible = true;
+            for (int d = 0; d < row.length && compatible; d++) {
+                int value = valueOf(tuple, d);
+                compatible = value < 0 || row[d] < 0 || row[d] == value;
+            }
+            if (compatible) {
+                total += weight(tuple);
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Weight of the uncovered tuples a complete row covers, removing them when `remove` is set
+     */
+    private double newlyCovered(int[] row, Set<Long> uncovered, boolean remove) {
+        double[] total = {0};
+        forEachTuple(row, 0, 0, 0L, tuple -> {
+            if (remove ? uncovered.remove(tuple) : uncovered.contains(tuple)) {
+                total[0] += weight(tuple);
+            }
+        });
+        return total[0];
+    }
+    
+    private interface TupleConsumer {
+        void accept(long tuple);
+    }
+    
+    private void forEachTuple(int[] row, int dimension, int picked, long tuple, TupleConsumer consumer) {
+        if (picked == strength) {
+            consumer.accept(tuple);
+            return;
+        }
+        if (weights.length - dimension < strength - picked) {
+            return;
+        }
+        forEachTuple(row, dimension + 1, picked + 1, with(tuple, dimension, row[dimension]), consumer);
+        forEachTuple(row, dimension + 1, picked, tuple, consumer);
+    }
+    
+    /**
+     * Every tuple of `strength` valid values over distinct dimensions
+     */
+    private void enumerate(int dimension, int picked, long tuple, Set<Long> into) {
+        if (picked == strength) {
+            into.add(tuple);
+            return;
+        }
+        if (weights.length - dimension < strength - picked) {
+            return;
+        }
+        for (int value = 0; value < weights[dimension].length; value++) {
+            if (weights[dimension][value] > 0) {
+                enumerate(dimension + 1, picked + 1, with(tuple, dimension, value), into);
+            }
+        }
+        enumerate(dimension + 1, picked, tuple, into);
+    }
+    
+    private double weight(long tuple) {
+        double weight = 1;
+        for (int d = 0; d < weights.length; d++) {
+            int value = valueOf(tuple, d);
+            if (value >= 0) {
+                weight *= weights[d][value];
+            }
+        }
+        return weight;
+    }
+    
+    // A tuple packs value + 1 for every dimension it covers into 4 bits per dimension, 0 means not covered
+    private static long with(long tuple, int dimension, int value) {
+        return tuple | (long) (value + 1) << (dimension * BITS_PER_DIMENSION);
+    }
+    
+    private static int valueOf(long tuple, int dimension) {
+        return (int) (tuple >>> (dimension * BITS_PER_DIMENSION) & ((1 << BITS_PER_DIMENSION) - 1)) - 1;
+    }
+}
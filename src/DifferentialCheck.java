@@ -0,0 +1,139 @@
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Differential mode: run sampled profiles through the browser and compare with the reference oracle
+ * Profiles come from the same seeded generator as the oracle's bulk mode, so a mismatch can be replayed.
+ */
+final class DifferentialCheck {
+    
+    private final DriverPool pool;
+    private final int samples;
+    private final long seed;
+    private final double tolerance;
+    private final String calculatorUrl;
+    private final Sharding sharding;
+    private final AtomicInteger checked = new AtomicInteger();
+    private final AtomicInteger matched = new AtomicInteger();
+    private final List<String> mismatches = Collections.synchronizedList(new ArrayList<>());
+    
+    DifferentialCheck(DriverPool pool, SuiteConfig config, Sharding sharding) {
+        this.pool = pool;
+        this.sharding = sharding;
+        this.samples = Math.max(1, config.getInt("samples", 20));
+        this.seed = config.getLong("seed", 42L);
+        this.tolerance = config.tolerance();
+        this.calculatorUrl = config.calculatorUrl();
+    }
+    
+    void run() throws InterruptedException {
+        CarbOracle.ProfileBatch batch = new CarbOracle.ProfileBatch(samples);
+        batch.generate(seed);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < samples; i++) {
+            ids.add("sample-" + (i + 1));
+        }
+        sharding.plan(ids);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(pool.size());
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            // This shard's samples first, then with work stealing the ones another shard may not get to
+            for (int i : sharding.order(ids)) {
+                CalculatorProfile profile = batch.toProfile(i);
+                String testId = ids.get(i);
+                futures.add(executor.submit(() -> {
+                    if (!sharding.claim(testId)) {
+                        return null;
+                    }
+                    checked.incrementAndGet();
+                    BrowserSession session = pool.acquire();
+                    try {
+                        check(session, testId, profile);
+                    } finally {
+                        pool.release(session);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    mismatches.add("worker failed: " + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        printReport();
+    }
+    
+    private void check(BrowserSession session, String testId, CalculatorProfile profile) {
+        long startNanos = System.nanoTime();
+        CalculationResult expected = CarbOracle.expected(profile);
+        CalculationResult actual = null;
+        String failure = null;
+        Span span = Tracing.tracer().spanBuilder("differential " + profile)
+            .setNoParent()
+            .setAllAttributes(Tracing.profileAttributes(profile))
+            .setAttribute("browser.session", session.id())
+            .setAttribute("test.expected", String.valueOf(expected))
+            .startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            session.navigateToCalculatorSmart(calculatorUrl);
+            new FormFiller(session).fillAndCalculate(profile);
+            actual = new ResultExtractor(session.js()).extract();
+            ResultBaseline.record(profile, actual, System.nanoTime() - startNanos);
+            span.setAttribute("test.result", String.valueOf(actual));
+            
+            if (expected == null ? actual == null : expected.matches(actual, tolerance)) {
+                matched.incrementAndGet();
+                ResultCache.store(profile, actual, ResultCache.Source.BROWSER);
+                span.setAttribute("test.outcome", "passed");
+            } else {
+                failure = "expected " + expected + ", got " + actual;
+                mismatches.add(profile + "\n    expected " + expected + "\n    actual   " + actual);
+                span.setAttribute("test.outcome", "failed");
+                span.setStatus(StatusCode.ERROR, "result differs from the oracle");
+                FailureArtifacts.capture(session, testId, 1, "assertion");
+            }
+        } catch (Exception e) {
+            failure = "exception: " + e.getMessage();
+            mismatches.add(profile + "\n    exception " + e.getMessage());
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, String.valueOf(e.getMessage()));
+            FailureArtifacts.capture(session, testId, 1, RetryPolicy.FailureKind.of(e).label());
+        } finally {
+            String traceId = span.getSpanContext().isValid() ? span.getSpanContext().getTraceId() : "";
+            span.end();
+            long nanos = System.nanoTime() - startNanos;
+            ResultReporter.step(new ResultReporter.StepResult(testId, 1, "calculate", profile, "oracle", "browser",
+                actual, "", failure, nanos, Instant.now(), traceId));
+            ResultReporter.test(new ResultReporter.TestResult(testId, profile.toString(), 1,
+                failure == null ? List.of() : List.of(failure), null, nanos, Instant.now(), traceId));
+        }
+    }
+    
+    private void printReport() {
+        System.out.println("\nDifferential Check Summary");
+        System.out.println("Profiles checked: " + checked.get() + " (seed " + seed + ", tolerance " + tolerance + ")");
+        System.out.println("Matched oracle: " + matched.get());
+        System.out.println("Mismatches: " + mismatches.size());
+        for (String mismatch : mismatches) {
+            System.out.println("  " + mismatch);
+        }
+        System.out.println("=======================================");
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded pool of ChromeDriver sessions shared by the worker threads
+ * Sessions are started up front in parallel so browser launch is paid once per run. With --browser-daemon
+ * the browsers are leased warm from a running BrowserDaemon instead and handed back on close.
+ */
+final class DriverPool implements AutoCloseable {
+    
+    private final List<BrowserSession> sessions = new ArrayList<>();
+    private final BlockingQueue<BrowserSession> idle;
+    
+    DriverPool(SuiteConfig config) {
+        int size = config.workers();
+        Duration resultTimeout = config.resultTimeout();
+        LoadProfile loadProfile = LoadProfile.from(config);
+        String daemon = config.get("browser-daemon", null);
+        idle = new ArrayBlockingQueue<>(size);
+        
+        List<CompletableFuture<BrowserSession>> launches = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int id = i + 1;
+            launches.add(CompletableFuture.supplyAsync(() -> daemon == null
+                ? BrowserSession.open(id, resultTimeout, loadProfile)
+                : BrowserSession.attach(id, lease(daemon), resultTimeout, loadProfile)));
+        }
+        
+        RuntimeException failure = null;
+        for (CompletableFuture<BrowserSession> launch : launches) {
+            try {
+                sessions.add(launch.join());
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        
+        if (failure != null) {
+            close();
+            throw failure;
+        }
+        idle.addAll(sessions);
+    }
+    
+    private static BrowserDaemon.Lease lease(String daemon) {
+        try {
+            return BrowserDaemon.lease(daemon);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot lease a browser from " + daemon, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while leasing a browser from " + daemon, e);
+        }
+    }
+    
+    /**
+     * Borrow a session, blocking until one is free
+     */
+    BrowserSession acquire() throws InterruptedException {
+        return idle.take();
+    }
+    
+    void release(BrowserSession session) {
+        idle.offer(session);
+    }
+    
+    int size() {
+        return sessions.size();
+    }
+    
+    @Override
+    public void close() {
+        for (BrowserSession session : sessions) {
+            try {
+                session.quit();
+            } catch (Exception e) {
+                System.err.println("Failed to close session " + session.id() + ": " + e.getMessage());
+            }
+        }
+        sessions.clear();
+        idle.clear();
+    }
+}
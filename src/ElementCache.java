@@ -0,0 +1,101 @@
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Page-scoped cache of WebElement handles keyed by locator
+ * A hit skips the findElement round-trip. Entries belong to one document: every fingerprint the session
+ * reads carries the document token, and a new token (form submit, reload) drops the whole cache. A handle
+ * that still goes stale is re-resolved on its own through with(), the rest of the cache stays.
+ */
+final class ElementCache {
+    
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong STALE = new AtomicLong();
+    private static final AtomicLong INVALIDATIONS = new AtomicLong();
+    
+    private final WebDriver driver;
+    private final Map<String, WebElement> elements = new HashMap<>();
+    private String documentToken;
+    
+    ElementCache(WebDriver driver) {
+        this.driver = driver;
+    }
+    
+    /**
+     * Cached handle for the locator, looked up with findElement on a miss
+     */
+    WebElement find(By locator) {
+        String key = locator.toString();
+        WebElement element = elements.get(key);
+        if (element != null) {
+            HITS.incrementAndGet();
+            return element;
+        }
+        MISSES.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            element = driver.findElement(locator);
+        } finally {
+            StepTimings.record("find", start);
+        }
+        elements.put(key, element);
+        return element;
+    }
+    
+    /**
+     * Apply an action to the cached element, re-resolving it once if the handle turned out to be stale
+     */
+    <T> T with(By locator, Function<WebElement, T> action) {
+        try {
+            return action.apply(find(locator));
+        } catch (StaleElementReferenceException e) {
+            STALE.incrementAndGet();
+            elements.remove(locator.toString());
+            return action.apply(find(locator));
+        }
+    }
+    
+    /**
+     * Feed a ResultWaiter fingerprint, the cache is dropped when it comes from a different document
+     */
+    void observe(String fingerprint) {
+        if (fingerprint == null) {
+            return;
+        }
+        int end = fingerprint.indexOf('|');
+        String token = end < 0 ? fingerprint : fingerprint.substring(0, end);
+        if (documentToken != null && !documentToken.equals(token)) {
+            invalidateAll();
+        }
+        documentToken = token;
+    }
+    
+    /**
+     * Forget every handle, used after a navigation the session started itself
+     */
+    void invalidateAll() {
+        if (!elements.isEmpty()) {
+            INVALIDATIONS.incrementAndGet();
+            elements.clear();
+        }
+        documentToken = null;
+    }
+    
+    static void printSummary() {
+        long hits = HITS.get();
+        long misses = MISSES.get();
+        if (hits + misses == 0) {
+            return;
+        }
+        System.out.println("\nElement Cache Summary");
+        System.out.println(String.format("  hits=%d misses=%d hit rate=%.1f%% stale re-resolves=%d page invalidations=%d",
+            hits, misses, hits * 100.0 / (hits + misses), STALE.get(), INVALIDATIONS.get()));
+    }
+}
@@ -0,0 +1,315 @@
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Equivalence mode: submit each generated profile on the metric tab and, converted, on the US tab
+ * The two submissions run at the same time on separate pooled sessions. Converting centimetres to inches
+ * and kilograms to pounds has to round to --equivalence-decimals, so the two sides describe slightly
+ * different people. The allowed difference follows from that: the rounding error of height and weight
+ * times the oracle's partial derivatives, plus the page's own rounding of each displayed figure.
+ * Pairs outside it are blamed on the side that also disagrees with the oracle for its own inputs.
+ */
+final class EquivalenceCheck {
+    
+    /**
+     * Allowed difference between the two sides, in calories and in grams per band
+     */
+    record Tolerance(double calories, double grams) {
+    }
+    
+    /**
+     * One compared pair; offBy is the largest difference as a multiple of its tolerance
+     */
+    record Comparison(String testId, CalculatorProfile metric, CalculatorProfile us, CalculationResult metricResult,
+                      CalculationResult usResult, Tolerance tolerance, double offBy, String blame) {
+        
+        boolean agrees() {
+            return offBy <= 1;
+        }
+    }
+    
+    private final DriverPool pool;
+    private final int samples;
+    private final long seed;
+    private final int decimals;
+    private final String calculatorUrl;
+    private final Sharding sharding;
+    private final AtomicInteger checked = new AtomicInteger();
+    private final AtomicInteger agreed = new AtomicInteger();
+    private final List<Comparison> disagreements = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    
+    EquivalenceCheck(DriverPool pool, SuiteConfig config, Sharding sharding) {
+        this.pool = pool;
+        this.sharding = sharding;
+        this.samples = Math.max(1, config.getInt("samples", 20));
+        this.seed = config.getLong("seed", 42L);
+        this.decimals = Math.max(0, config.getInt("equivalence-decimals", 1));
+        this.calculatorUrl = config.calculatorUrl();
+    }
+    
+    void run() throws InterruptedException {
+        if (pool.size() < 2) {
+            System.out.println("Only one browser session, the two sides of each pair run one after the other");
+        }
+        CarbOracle.ProfileBatch batch = new CarbOracle.ProfileBatch(samples);
+        batch.generate(seed);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < samples; i++) {
+            ids.add("pair-" + (i + 1));
+        }
+        sharding.plan(ids);
+        
+        // Each pair holds two sessions, the metric side runs on the pair's thread and the US side beside it
+        int pairs = Math.max(1, pool.size() / 2);
+        ExecutorService executor = Executors.newFixedThreadPool(pairs);
+        ExecutorService sides = Executors.newFixedThreadPool(pairs);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i : sharding.order(ids)) {
+                CalculatorProfile metric = batch.toProfile(i);
+                String testId = ids.get(i);
+                futures.add(executor.submit(() -> {
+                    if (!sharding.claim(testId)) {
+                        return null;
+                    }
+                    checked.incrementAndGet();
+                    check(testId, metric, toUs(metric, decimals), sides);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    errors.add("worker failed: " + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            sides.shutdownNow();
+        }
+        
+        printReport();
+    }
+    
+    private void check(String testId, CalculatorProfile metric, CalculatorProfile us, ExecutorService sides)
+            throws InterruptedException {
+        long startNanos = System.nanoTime();
+        Span span = Tracing.tracer().spanBuilder("equivalence " + metric)
+            .setNoParent()
+            .setAllAttributes(Tracing.profileAttributes(metric))
+            .setAttribute("test.us_profile", us.toString())
+            .startSpan();
+        String failure = null;
+        String error = null;
+        try (Scope ignored = span.makeCurrent()) {
+            BrowserSession metricSession = pool.acquire();
+            BrowserSession usSession = metricSession;
+            CompletableFuture<CalculationResult> usSubmission = null;
+            CalculationResult metricResult;
+            CalculationResult usResult;
+            try {
+                if (pool.size() > 1) {
+                    usSession = pool.acquire();
+                }
+                if (usSession == metricSession) {
+                    usResult = submit(usSession, us, testId, 2);
+                    metricResult = submit(metricSession, metric, testId, 1);
+                } else {
+                    BrowserSession usSide = usSession;
+                    usSubmission = CompletableFuture.supplyAsync(
+                        () -> submit(usSide, us, testId, 2), Context.current().wrap(sides));
+                    metricResult = submit(metricSession, metric, testId, 1);
+                    usResult = usSubmission.join();
+                }
+            } finally {
+                // A failed metric side must not hand back the US session while the US side still drives it
+                if (usSubmission != null) {
+                    usSubmission.exceptionally(e -> null).join();
+                }
+                pool.release(metricSession);
+                if (usSession != metricSession) {
+                    pool.release(usSession);
+                }
+            }
+            
+            Comparison comparison = compare(testId, metric, us, metricResult, usResult);
+            // A side without a complete result is off by infinity, which the trace file cannot hold
+            if (Double.isFinite(comparison.offBy())) {
+                span.setAttribute("test.off_by", comparison.offBy());
+            } else {
+                span.setAttribute("test.incomplete", true);
+            }
+            if (comparison.agrees()) {
+                agreed.incrementAndGet();
+                span.setAttribute("test.outcome", "passed");
+            } else {
+                disagreements.add(comparison);
+                failure = String.format("metric %s and US %s differ by %.1fx the rounding tolerance, %s",
+                    metricResult, usResult, comparison.offBy(), comparison.blame());
+                span.setAttribute("test.outcome", "failed");
+                span.setStatus(StatusCode.ERROR, "units disagree beyond the rounding tolerance");
+            }
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            error = cause.getMessage();
+            errors.add(metric + "\n    exception " + cause.getMessage());
+            span.recordException(cause);
+            span.setStatus(StatusCode.ERROR, String.valueOf(cause.getMessage()));
+        } finally {
+            String traceId = span.getSpanContext().isValid() ? span.getSpanContext().getTraceId() : "";
+            span.end();
+            ResultReporter.test(new ResultReporter.TestResult(testId, metric + " vs " + us, 2,
+                failure == null ? List.of() : List.of(failure), error, System.nanoTime() - startNanos,
+                Instant.now(), traceId));
+        }
+    }
+    
+    private CalculationResult submit(BrowserSession session, CalculatorProfile profile, String testId, int step) {
+        long startNanos = System.nanoTime();
+        CalculationResult result = null;
+        String failure = null;
+        try {
+            session.navigateToCalculatorSmart(calculatorUrl);
+            new FormFiller(session).fillAndCalculate(profile);
+            result = new ResultExtractor(session.js()).extract();
+            ResultBaseline.record(profile, result, System.nanoTime() - startNanos);
+            if (result == null || !result.isComplete()) {
+                failure = "no result table";
+            }
+            return result;
+        } catch (RuntimeException e) {
+            failure = "exception: " + e.getMessage();
+            throw e;
+        } finally {
+            ResultReporter.step(new ResultReporter.StepResult(testId, step, "calculate", profile, "equivalent",
+                "browser", result, "", failure, System.nanoTime() - startNanos, Instant.now(),
+                ResultReporter.currentTraceId()));
+        }
+    }
+    
+    /**
+     * The same person on the US tab: total inches split into feet and inches, and pounds, both rounded
+     */
+    static CalculatorProfile toUs(CalculatorProfile metric, int decimals) {
+        double scale = Math.pow(10, decimals);
+        double totalInches = Math.round(Double.parseDouble(metric.height()) / CarbOracle.CM_PER_INCH * scale) / scale;
+        double feet = Math.floor(totalInches / 12);
+        double inches = Math.round((totalInches - feet * 12) * scale) / scale;
+        double pounds = Math.round(Double.parseDouble(metric.weight()) / CarbOracle.KG_PER_POUND * scale) / scale;
+        return CalculatorProfile.us(metric.age(), metric.sex(), CarbOracle.formatNumber(feet),
+            CarbOracle.formatNumber(inches), CarbOracle.formatNumber(pounds), metric.activity());
+    }
+    
+    /**
+     * Compare both sides against the tolerance their inputs allow, and blame the side the oracle disagrees with
+     */
+    static Comparison compare(String testId, CalculatorProfile metric, CalculatorProfile us,
+                              CalculationResult metricResult, CalculationResult usResult) {
+        Tolerance tolerance = tolerance(metric, us);
+        double offBy = Double.POSITIVE_INFINITY;
+        boolean complete = metricResult != null && metricResult.isComplete()
+            && usResult != null && usResult.isComplete() && metricResult.bands().size() == usResult.bands().size();
+        if (complete) {
+            offBy = Math.abs(metricResult.calories() - usResult.calories()) / tolerance.calories();
+            for (CalculationResult.CarbBand band : metricResult.bands()) {
+                CalculationResult.CarbBand other = usResult.band(band.percent());
+                if (other == null) {
+                    offBy = Double.POSITIVE_INFINITY;
+                    break;
+                }
+                offBy = Math.max(offBy, Math.max(Math.abs(band.minGrams() - other.minGrams()),
+                    Math.abs(band.maxGrams() - other.maxGrams())) / tolerance.grams());
+            }
+        }
+        
+        String blame = "";
+        if (offBy > 1) {
+            // Each side's own oracle result differs from the page's display only by display rounding
+            boolean metricOff = !matchesOracle(metric, metricResult);
+            boolean usOff = !matchesOracle(us, usResult);
+            blame = metricOff && usOff ? "both sides differ from the oracle"
+                : metricOff ? "metric side differs from the oracle"
+                : usOff ? "US side differs from the oracle"
+                : "each side matches the oracle for its own inputs";
+        }
+        return new Comparison(testId, metric, us, metricResult, usResult, tolerance, offBy, blame);
+    }
+    
+    /**
+     * Rounding error of the converted height and weight times the oracle's slope in each, plus one unit
+     * for the page rounding each displayed figure on both sides
+     */
+    static Tolerance tolerance(CalculatorProfile metric, CalculatorProfile us) {
+        double age = Double.parseDouble(metric.age());
+        boolean male = metric.sex() == Sex.MALE;
+        double activity = Double.parseDouble(metric.activity());
+        double heightCm = Double.parseDouble(metric.height());
+        double weightKg = Double.parseDouble(metric.weight());
+        double usHeightCm = (Double.parseDouble(us.height()) * 12 + Double.parseDouble(us.heightInches()))
+            * CarbOracle.CM_PER_INCH;
+        double usWeightKg = Double.parseDouble(us.weight()) * CarbOracle.KG_PER_POUND;
+        
+        double step = 0.01;
+        double perCm = (CarbOracle.tdee(age, male, heightCm + step, weightKg, activity)
+            - CarbOracle.tdee(age, male, heightCm - step, weightKg, activity)) / (2 * step);
+        double perKg = (CarbOracle.tdee(age, male, heightCm, weightKg + step, activity)
+            - CarbOracle.tdee(age, male, heightCm, weightKg - step, activity)) / (2 * step);
+        double calories = Math.abs(perCm) * Math.abs(heightCm - usHeightCm)
+            + Math.abs(perKg) * Math.abs(weightKg - usWeightKg);
+        
+        double gramsPerCalorie = 0;
+        for (int percent : CarbOracle.CARB_PERCENTAGES) {
+            gramsPerCalorie = Math.max(gramsPerCalorie, CarbOracle.carbGrams(1, percent));
+        }
+        return new Tolerance(calories + 1, calories * gramsPerCalorie + 1);
+    }
+    
+    private static boolean matchesOracle(CalculatorProfile profile, CalculationResult result) {
+        CalculationResult expected = CarbOracle.expected(profile);
+        return expected == null ? result == null || !result.isComplete() : expected.matches(result, 1.0);
+    }
+    
+    private void printReport() {
+        System.out.println("\nUnit Equivalence Summary");
+        System.out.println("Pairs checked: " + checked.get() + " (seed " + seed + ", US values rounded to "
+            + decimals + " decimal(s))");
+        System.out.println("Agreed within the rounding tolerance: " + agreed.get());
+        System.out.println("Disagreed: " + disagreements.size());
+        System.out.println("Errors: " + errors.size());
+        
+        List<Comparison> worst = new ArrayList<>(disagreements);
+        if (!worst.isEmpty()) {
+            long metricBlamed = worst.stream().filter(c -> c.blame().startsWith("metric")).count();
+            long usBlamed = worst.stream().filter(c -> c.blame().startsWith("US")).count();
+            long bothBlamed = worst.stream().filter(c -> c.blame().startsWith("both")).count();
+            System.out.println(String.format("  Off the oracle: metric side %d, US side %d, both %d, neither %d",
+                metricBlamed, usBlamed, bothBlamed, worst.size() - metricBlamed - usBlamed - bothBlamed));
+            worst.sort(Comparator.comparingDouble(Comparison::offBy).reversed());
+            for (Comparison c : worst.subList(0, Math.min(10, worst.size()))) {
+                System.out.println(String.format("  %s %.1fx tolerance (%.1f kcal, %.1f g), %s%n    metric %s -> %s%n    US     %s -> %s",
+                    c.testId(), c.offBy(), c.tolerance().calories(), c.tolerance().grams(), c.blame(),
+                    c.metric(), c.metricResult(), c.us(), c.usResult()));
+            }
+        }
+        for (String error : errors) {
+            System.out.println("  " + error);
+        }
+        System.out.println("=======================================");
+    }
+}
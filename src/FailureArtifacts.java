@@ -0,0 +1,276 @@
+import com.google.gson.stream.JsonWriter;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Screenshots, result-region DOM and browser console logs captured where a step failed
+ * The worker only grabs the raw bytes from the browser; hashing, gzip and disk writes happen on a small
+ * bounded executor. Artifacts are stored once per SHA-256 under reports/artifacts-<timestamp>/ (--artifacts-dir
+ * overrides it, --artifacts=off disables capture), with an index.ndjson line per capture. Writes stop at
+ * --artifact-quota-mb for the run, and captures are dropped rather than queued when the writer falls behind.
+ */
+final class FailureArtifacts {
+    
+    private enum Kind {
+        SCREENSHOT("png", false),
+        DOM("html.gz", true),
+        CONSOLE("log.gz", true);
+        
+        final String extension;
+        final boolean compress;
+        
+        Kind(String extension, boolean compress) {
+            this.extension = extension;
+            this.compress = compress;
+        }
+    }
+    
+    // Result and validation regions plus the form, enough to see what the page showed
+    private static final String DOM_SCRIPT =
+        "var nodes = document.querySelectorAll(arguments[0] + ', form');" +
+        "var html = '';" +
+        "for (var i = 0; i < nodes.length; i++) { html += nodes[i].outerHTML + '\\n'; }" +
+        "return html;";
+    
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    // Outcome of the first write of each hash; a duplicate waits for it before pointing at the file
+    private static final Map<String, CompletableFuture<Boolean>> STORED = new ConcurrentHashMap<>();
+    private static final AtomicLong CAPTURED = new AtomicLong();
+    private static final AtomicLong WRITTEN = new AtomicLong();
+    private static final AtomicLong DEDUPLICATED = new AtomicLong();
+    private static final AtomicLong OVER_QUOTA = new AtomicLong();
+    private static final AtomicLong QUEUE_FULL = new AtomicLong();
+    private static final AtomicLong BYTES = new AtomicLong();
+    
+    private static volatile ThreadPoolExecutor writer;
+    private static volatile Path directory;
+    private static volatile long quotaBytes;
+    private static Writer index;
+    
+    private FailureArtifacts() {
+    }
+    
+    /**
+     * Start the background writer, unless --artifacts=off
+     */
+    static void start(SuiteConfig config) {
+        if (config.get("artifacts", "on").equals("off")) {
+            return;
+        }
+        directory = Path.of(config.get("artifacts-dir",
+            "reports/artifacts-" + LocalDateTime.now().format(FILE_STAMP)));
+        quotaBytes = config.getLong("artifact-quota-mb", 200) * 1024 * 1024;
+        int threads = Math.max(1, config.getInt("artifact-threads", 2));
+        writer = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, config.getInt("artifact-queue", 32))), runnable -> {
+                Thread thread = new Thread(runnable, "artifact-writer");
+                thread.setDaemon(true);
+                return thread;
+            }, (runnable, executor) -> QUEUE_FULL.incrementAndGet());
+    }
+    
+    /**
+     * Grab the failure state from the session and hand it to the writer, never throws
+     * Each part is taken on its own, so a browser that cannot take a screenshot still yields its DOM and log.
+     */
+    static void capture(BrowserSession session, String testId, int step, String reason) {
+        ThreadPoolExecutor current = writer;
+        if (current == null) {
+            return;
+        }
+        CAPTURED.incrementAndGet();
+        long start = System.nanoTime();
+        byte[] screenshot = null;
+        String dom = null;
+        String console = null;
+        try {
+            screenshot = ((TakesScreenshot) session.driver()).getScreenshotAs(OutputType.BYTES);
+        } catch (WebDriverException | ClassCastException e) {
+            // No screenshot from a crashed or detached browser
+        }
+        try {
+            dom = (String) session.js().executeScript(DOM_SCRIPT, ResultWaiter.RESULT_SELECTOR);
+        } catch (WebDriverException e) {
+            // Page is gone, the screenshot and log may still tell what happened
+        }
+        try {
+            StringBuilder log = new StringBuilder();
+            for (LogEntry entry : session.driver().manage().logs().get(LogType.BROWSER)) {
+                log.append(Instant.ofEpochMilli(entry.getTimestamp())).append(' ').append(entry.getLevel())
+                    .append(' ').append(entry.getMessage()).append('\n');
+            }
+            console = log.toString();
+        } catch (WebDriverException | UnsupportedOperationException e) {
+            // Console logging is not available on every driver
+        }
+        StepTimings.record("artifacts.capture", start);
+        
+        byte[] png = screenshot;
+        byte[] html = dom == null ? null : dom.getBytes(StandardCharsets.UTF_8);
+        byte[] log = console == null || console.isEmpty() ? null : console.getBytes(StandardCharsets.UTF_8);
+        String traceId = ResultReporter.currentTraceId();
+        current.execute(() -> {
+            store(testId, step, reason, Kind.SCREENSHOT, png, traceId);
+            store(testId, step, reason, Kind.DOM, html, traceId);
+            store(testId, step, reason, Kind.CONSOLE, log, traceId);
+        });
+    }
+    
+    private static void store(String testId, int step, String reason, Kind kind, byte[] content, String traceId) {
+        if (content == null) {
+            return;
+        }
+        String hash = sha256(content);
+        Path file = directory.resolve(hash.substring(0, 16) + "." + kind.extension);
+        CompletableFuture<Boolean> write = new CompletableFuture<>();
+        CompletableFuture<Boolean> first;
+        while ((first = STORED.putIfAbsent(hash, write)) != null) {
+            if (first.join()) {
+                DEDUPLICATED.incrementAndGet();
+                appendIndex(testId, step, reason, kind, file.getFileName().toString(), hash, 0, true, null, traceId);
+                return;
+            }
+            // The first write failed and dropped its entry, this copy gets its own attempt
+        }
+        
+        long size = 0;
+        String skipped = null;
+        boolean written = false;
+        try {
+            byte[] bytes = kind.compress ? gzip(content) : content;
+            if (BYTES.addAndGet(bytes.length) > quotaBytes) {
+                BYTES.addAndGet(-bytes.length);
+                OVER_QUOTA.incrementAndGet();
+                skipped = "quota";
+            } else {
+                Files.createDirectories(directory);
+                Files.write(file, bytes);
+                WRITTEN.incrementAndGet();
+                size = bytes.length;
+                written = true;
+            }
+        } catch (IOException e) {
+            skipped = "error: " + e.getMessage();
+        } finally {
+            // Waiting duplicates must always learn the outcome, a failed write lets the next one try
+            if (!written) {
+                STORED.remove(hash, write);
+            }
+            write.complete(written);
+        }
+        appendIndex(testId, step, reason, kind, skipped == null ? file.getFileName().toString() : null, hash,
+            size, false, skipped, traceId);
+    }
+    
+    private static synchronized void appendIndex(String testId, int step, String reason, Kind kind, String file,
+                                                 String hash, long size, boolean duplicate, String skipped,
+                                                 String traceId) {
+        StringWriter line = new StringWriter();
+        try (JsonWriter json = new JsonWriter(line)) {
+            json.beginObject();
+            json.name("test").value(testId);
+            json.name("step").value(step);
+            json.name("reason").value(reason);
+            json.name("kind").value(kind.name().toLowerCase());
+            json.name("sha256").value(hash);
+            if (file != null) {
+                json.name("file").value(file);
+                json.name("bytes").value(size);
+                json.name("deduplicated").value(duplicate);
+            } else {
+                json.name("skipped").value(skipped);
+            }
+            json.name("traceId").value(traceId);
+            json.endObject();
+            
+            if (index == null) {
+                Files.createDirectories(directory);
+                index = Files.newBufferedWriter(directory.resolve("index.ndjson"), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            index.write(line.toString());
+            index.write('\n');
+            index.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to index failure artifact: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Wait for queued writes, then print what was kept
+     */
+    static void finish() {
+        ThreadPoolExecutor current = writer;
+        if (current == null) {
+            return;
+        }
+        writer = null;
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("Failure artifacts still being written after 30 s, giving up");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (FailureArtifacts.class) {
+            if (index != null) {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close artifact index: " + e.getMessage());
+                }
+                index = null;
+            }
+        }
+        if (CAPTURED.get() > 0) {
+            System.out.println(String.format("Failure artifacts: %d captures, %d files (%.1f MB) in %s, "
+                    + "%d deduplicated, %d over quota, %d dropped while the writer was busy",
+                CAPTURED.get(), WRITTEN.get(), BYTES.get() / 1048576.0, directory, DEDUPLICATED.get(),
+                OVER_QUOTA.get(), QUEUE_FULL.get()));
+        }
+    }
+    
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import io.opentelemetry.api.common.Attributes;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.Select;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies a CalculatorProfile to the calculator form and submits it
+ * BATCH writes every field and clicks calculate in a single executeScript round-trip.
+ * KEYSTROKE types each field with sendKeys, for scenarios that exercise the page's input validation.
+ */
+final class FormFiller {
+    
+    enum Mode {
+        BATCH,
+        KEYSTROKE
+    }
+    
+    // Switches the unit tab, writes all fields with the events the page listens for,
+    // then clicks calculate on the next tick so the script returns before the page navigates
+    private static final String BATCH_SCRIPT =
+        "var p = arguments[0];" +
+        "var fingerprint = (" + ResultWaiter.FINGERPRINT_FUNCTION + ")(arguments[1]);" +
+        "function byName(name) { return document.getElementsByName(name)[0]; }" +
+        "function fire(el, type) { el.dispatchEvent(new Event(type, {bubbles: true})); }" +
+        "function write(name, value) {" +
+        "  var el = byName(name);" +
+        "  if (!el) { throw new Error('Missing form field: ' + name); }" +
+        "  el.focus(); el.value = value; fire(el, 'input'); fire(el, 'change'); el.blur();" +
+        "}" +
+        "var height = byName(p.heightField);" +
+        "if (height && height.offsetParent === null) {" +
+        "  var links = document.getElementsByTagName('a');" +
+        "  for (var i = 0; i < links.length; i++) {" +
+        "    if (links[i].textContent.trim() === p.tabLabel) { links[i].click(); break; }" +
+        "  }" +
+        "}" +
+        "write('cage', p.age);" +
+        "var sex = document.getElementById(p.sexId);" +
+        "sex.checked = true; fire(sex, 'click'); fire(sex, 'change');" +
+        "write(p.heightField, p.height);" +
+        "if (p.inchField) { write(p.inchField, p.inches); }" +
+        "write(p.weightField, p.weight);" +
+        "write('cactivity', p.activity);" +
+        "var button = byName('x');" +
+        "setTimeout(function() { button.click(); }, 0);" +
+        "return fingerprint;";
+    
+    private final WebDriver driver;
+    private final WebDriverWait wait;
+    private final JavascriptExecutor js;
+    private final ResultWaiter results;
+    private final ElementCache elements;
+    
+    FormFiller(BrowserSession session) {
+        this.driver = session.driver();
+        this.wait = session.waiter();
+        this.js = session.js();
+        this.results = session.results();
+        this.elements = session.elements();
+    }
+    
+    /**
+     * Fill the whole profile and calculate in one round-trip, then wait for the result block
+     */
+    void fillAndCalculate(CalculatorProfile profile) {
+        fillAndCalculate(profile, Mode.BATCH);
+    }
+    
+    void fillAndCalculate(CalculatorProfile profile, Mode mode) {
+        if (mode == Mode.BATCH) {
+            long start = System.nanoTime();
+            String before = (String) js.executeScript(BATCH_SCRIPT, toScriptArgument(profile), ResultWaiter.RESULT_SELECTOR);
+            StepTimings.record("fill.batch", start, Tracing.profileAttributes(profile));
+            elements.observe(before);
+            results.awaitChange(before, "calculate");
+        } else {
+            fillByKeystroke(profile);
+            calculateAndAwaitResult();
+        }
+    }
+    
+    /**
+     * Type each field with sendKeys so the page's own validation runs on every keystroke
+     */
+    void fillByKeystroke(CalculatorProfile profile) {
+        UnitSystem units = profile.units();
+        By height = By.name(units.heightField());
+        if (!elements.with(height, WebElement::isDisplayed)) {
+            fastScrollAndClick(wait.until(ExpectedConditions.elementToBeClickable(By.linkText(units.tabLabel()))),
+                units.tabLabel());
+            wait.until(ExpectedConditions.visibilityOf(elements.find(height)));
+        }
+        
+        type(By.name("cage"), "cage", profile.age());
+        
+        StepTimings.time("fill.radio", Tracing.fieldAttributes("csex", profile.sex().radioId()),
+            () -> elements.with(By.id(profile.sex().radioId()),
+                sex -> js.executeScript("arguments[0].checked = true;", sex)));
+        
+        type(height, units.heightField(), profile.height());
+        if (units == UnitSystem.US) {
+            type(By.name("cheightinch"), "cheightinch", profile.heightInches());
+        }
+        type(By.name(units.weightField()), units.weightField(), profile.weight());
+        
+        StepTimings.time("fill.select", Tracing.fieldAttributes("cactivity", profile.activity()),
+            () -> elements.with(By.name("cactivity"), activity -> {
+                new Select(activity).selectByValue(profile.activity());
+                return activity;
+            }));
+    }
+    
+    /**
+     * Click calculate and return as soon as the result block appears or changes
+     */
+    void calculateAndAwaitResult() {
+        String before = results.fingerprint();
+        elements.with(By.name("x"), button -> {
+            fastScrollAndClick(button, "calculate");
+            return button;
+        });
+        results.awaitChange(before, "calculate");
+    }
+    
+    void fastScrollAndClick(WebElement element, String target) {
+        long start = System.nanoTime();
+        js.executeScript("arguments[0].scrollIntoView({behavior: 'instant', block: 'center'});", element);
+        try {
+            element.click();
+        } catch (Exception e) {
+            js.executeScript("arguments[0].click();", element);
+        }
+        StepTimings.record("click", start, Attributes.of(Tracing.CLICK_TARGET, target));
+    }
+    
+    void fastInput(WebElement element, String field, String text) {
+        long start = System.nanoTime();
+        try {
+            element.clear();
+            element.sendKeys(text);
+        } catch (Exception e) {
+            js.executeScript("arguments[0].value = arguments[1];", element, text);
+        }
+        StepTimings.record("fill.input", start, Tracing.fieldAttributes(field, text));
+    }
+    
+    private void type(By locator, String field, String text) {
+        elements.with(locator, element -> {
+            fastInput(element, field, text);
+            return element;
+        });
+    }
+    
+    private static Map<String, Object> toScriptArgument(CalculatorProfile profile) {
+        UnitSystem units = profile.units();
+        Map<String, Object> arg = new HashMap<>();
+        arg.put("age", profile.age());
+        arg.put("sexId", profile.sex().radioId());
+        arg.put("tabLabel", units.tabLabel());
+        arg.put("heightField", units.heightField());
+        arg.put("height", profile.height());
+        arg.put("inchField", units == UnitSystem.US ? "cheightinch" : null);
+        arg.put("inches", profile.heightInches());
+        arg.put("weightField", units.weightField());
+        arg.put("weight", profile.weight());
+        arg.put("activity", profile.activity());
+        return arg;
+    }
+}
@@ -0,0 +1,108 @@
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriverException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pristine snapshot of the calculator form, taken once after the first page load
+ * Restoring puts back every field, radio, select and the US/Metric unit tab, and clears any result or
+ * validation message, in a single executeScript. The script returns a fingerprint of the form afterwards,
+ * so a page that could not be put back (different markup, document still loading) is detected and reloaded.
+ */
+final class FormState {
+    
+    // Serialized state of the form holding the age field plus the visible unit system, and its hash
+    private static final String STATE_FUNCTION =
+        "function() {" +
+        "  var age = document.getElementsByName('cage')[0];" +
+        "  if (!age || !age.form) { return null; }" +
+        "  var controls = [];" +
+        "  var elements = age.form.elements;" +
+        "  for (var i = 0; i < elements.length; i++) {" +
+        "    var el = elements[i];" +
+        "    var key = el.id || el.name;" +
+        "    if (!key || el.type === 'submit' || el.type === 'button') { continue; }" +
+        "    controls.push({key: key, name: el.name, value: el.value, checked: !!el.checked," +
+        "      selectedIndex: el.tagName === 'SELECT' ? el.selectedIndex : -1});" +
+        "  }" +
+        "  var metric = document.getElementsByName('cheightmeter')[0];" +
+        "  var units = metric && metric.offsetParent !== null ? 'metric' : 'us';" +
+        "  var json = JSON.stringify({units: units, controls: controls});" +
+        "  var hash = 0;" +
+        "  for (var j = 0; j < json.length; j++) { hash = ((hash << 5) - hash + json.charCodeAt(j)) | 0; }" +
+        "  return {json: json, fingerprint: json.length + ':' + hash};" +
+        "}";
+    
+    private static final String CAPTURE_SCRIPT =
+        "var state = (" + STATE_FUNCTION + ")();" +
+        "return state ? [state.json, state.fingerprint] : null;";
+    
+    private static final String RESTORE_SCRIPT =
+        "var snapshot = JSON.parse(arguments[0]);" +
+        "var tabLabels = arguments[1];" +
+        "if (document.readyState === 'loading') { return null; }" +
+        "var current = (" + STATE_FUNCTION + ")();" +
+        "if (!current) { return null; }" +
+        "if (JSON.parse(current.json).units !== snapshot.units) {" +
+        "  var links = document.getElementsByTagName('a');" +
+        "  for (var i = 0; i < links.length; i++) {" +
+        "    if (links[i].textContent.trim() === tabLabels[snapshot.units]) { links[i].click(); break; }" +
+        "  }" +
+        "}" +
+        "var form = document.getElementsByName('cage')[0].form;" +
+        "for (var c = 0; c < snapshot.controls.length; c++) {" +
+        "  var saved = snapshot.controls[c];" +
+        "  var el = document.getElementById(saved.key) || form.elements[saved.name];" +
+        "  if (!el || el.length > 1 && !el.tagName) { continue; }" +
+        "  if (el.type === 'radio' || el.type === 'checkbox') { el.checked = saved.checked; }" +
+        "  else if (saved.selectedIndex >= 0) { el.selectedIndex = saved.selectedIndex; }" +
+        "  else { el.value = saved.value; }" +
+        "}" +
+        "var stale = document.querySelectorAll(arguments[2]);" +
+        "for (var s = 0; s < stale.length; s++) {" +
+        "  if (stale[s].parentNode) { stale[s].parentNode.removeChild(stale[s]); }" +
+        "}" +
+        "window.scrollTo(0, 0);" +
+        "return (" + STATE_FUNCTION + ")().fingerprint;";
+    
+    private final JavascriptExecutor js;
+    private final String snapshot;
+    private final String fingerprint;
+    private final Map<String, String> tabLabels;
+    
+    private FormState(JavascriptExecutor js, String snapshot, String fingerprint) {
+        this.js = js;
+        this.snapshot = snapshot;
+        this.fingerprint = fingerprint;
+        this.tabLabels = Map.of("metric", UnitSystem.METRIC.tabLabel(), "us", UnitSystem.US.tabLabel());
+    }
+    
+    /**
+     * Snapshot the form as it is now, returns null when the page has no calculator form
+     */
+    static FormState capture(JavascriptExecutor js) {
+        Object state = js.executeScript(CAPTURE_SCRIPT);
+        if (!(state instanceof List<?> parts) || parts.size() != 2) {
+            return null;
+        }
+        return new FormState(js, (String) parts.get(0), (String) parts.get(1));
+    }
+    
+    /**
+     * Put the form back to the snapshot, true when the restored form matches the pristine fingerprint
+     * Results and validation messages left by the previous step are removed as well.
+     */
+    boolean restore() {
+        try {
+            Object restored = js.executeScript(RESTORE_SCRIPT, snapshot, tabLabels, ResultWaiter.RESULT_SELECTOR);
+            return fingerprint.equals(restored);
+        } catch (WebDriverException e) {
+            // Document was unloading or the form markup changed, the caller reloads
+            return false;
+        }
+    }
+    
+    String fingerprint() {
+        return fingerprint;
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Browserless submission of the calculator form with java.net.http
+ * Encodes the same fields the browser tests set and parses the result table out of the returned HTML.
+ */
+final class HttpCalculatorClient {
+    
+    /**
+     * Outcome of one submission: status code, parsed result (null when there is no result table),
+     * validation message and the request's wall time
+     */
+    record Response(int status, CalculationResult result, String message, long nanos) {
+    }
+    
+    private final HttpClient client;
+    private final String calculatorUrl;
+    private final Duration timeout;
+    
+    HttpCalculatorClient(String calculatorUrl, Duration timeout, Executor executor) {
+        this.calculatorUrl = calculatorUrl;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(executor)
+            .build();
+    }
+    
+    Response submit(CalculatorProfile profile) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(calculatorUrl + "?" + encode(formFields(profile))))
+            .timeout(timeout)
+            .header("User-Agent", "CarbohydrateCalculatorAutomation")
+            .GET()
+            .build();
+        
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        long nanos = System.nanoTime() - start;
+        StepTimings.recordNanos("http.request", nanos);
+        
+        long parseStart = System.nanoTime();
+        String html = response.body();
+        CalculationResult result = ResultExtractor.parseHtml(html);
+        String message = ResultExtractor.validationMessageInHtml(html);
+        StepTimings.record("http.parse", parseStart);
+        return new Response(response.statusCode(), result, message, nanos);
+    }
+    
+    /**
+     * Query fields the calculator form submits for a profile, in form order
+     */
+    static Map<String, String> formFields(CalculatorProfile profile) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("ctype", profile.units() == UnitSystem.US ? "us" : "metric");
+        fields.put("cage", profile.age());
+        fields.put("csex", profile.sex() == Sex.MALE ? "m" : "f");
+        if (profile.units() == UnitSystem.US) {
+            fields.put("cheightfeet", profile.height());
+            fields.put("cheightinch", profile.heightInches() == null ? "" : profile.heightInches());
+            fields.put("cpound", profile.weight());
+        } else {
+            fields.put("cheightmeter", profile.height());
+            fields.put("ckg", profile.weight());
+        }
+        fields.put("cactivity", profile.activity());
+        fields.put("x", "Calculate");
+        return fields;
+    }
+    
+    private static String encode(Map<String, String> fields) {
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(URLEncoder.encode(field.getKey(), StandardCharsets.UTF_8))
+                .append('=')
+                .append(URLEncoder.encode(field.getValue(), StandardCharsets.UTF_8));
+        }
+        return query.toString();
+    }
+}
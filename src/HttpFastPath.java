@@ -0,0 +1,127 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Browserless mode: submit generated profiles straight to the calculator over HTTP and check them against the oracle
+ * Many submissions run concurrently, bounded by --concurrency, so thousands of profiles fit in the time
+ * a browser needs for a few dozen. Browser mode stays the path for UI-level checks.
+ */
+final class HttpFastPath {
+    
+    private static final int MAX_REPORTED_MISMATCHES = 20;
+    
+    private final String calculatorUrl;
+    private final int profiles;
+    private final int concurrency;
+    private final long seed;
+    private final double tolerance;
+    private final Duration timeout;
+    
+    private final AtomicInteger matched = new AtomicInteger();
+    private final AtomicInteger mismatched = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final List<String> mismatches = Collections.synchronizedList(new ArrayList<>());
+    private final LatencyHistogram latency = new LatencyHistogram();
+    
+    HttpFastPath(SuiteConfig config) {
+        this.calculatorUrl = config.calculatorUrl();
+        this.profiles = Math.max(1, config.getInt("profiles", 10_000));
+        this.concurrency = Math.max(1, config.getInt("concurrency", 64));
+        this.seed = config.getLong("seed", 42L);
+        this.tolerance = config.tolerance();
+        this.timeout = config.resultTimeout();
+    }
+    
+    void run() throws InterruptedException {
+        System.out.println("HTTP fast path: " + profiles + " profiles, concurrency " + concurrency
+            + (Workers.virtualThreadsAvailable() ? " (virtual threads)" : " (platform threads)"));
+        
+        CarbOracle.ProfileBatch batch = new CarbOracle.ProfileBatch(profiles);
+        batch.generate(seed);
+        
+        ExecutorService executor = Workers.newTaskExecutor("http-submit");
+        HttpCalculatorClient client = new HttpCalculatorClient(calculatorUrl, timeout, executor);
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        
+        try {
+            for (int i = 0; i < profiles; i++) {
+                CalculatorProfile profile = batch.toProfile(i);
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        check(client, profile);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(concurrency);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        
+        printReport(System.nanoTime() - start);
+    }
+    
+    private void check(HttpCalculatorClient client, CalculatorProfile profile) {
+        try {
+            HttpCalculatorClient.Response response = client.submit(profile);
+            latency.record(response.nanos());
+            CalculationResult expected = CarbOracle.expected(profile);
+            if (response.status() == 200) {
+                ResultBaseline.record(profile, response.result(), response.nanos());
+            }
+            
+            if (response.status() != 200) {
+                errors.incrementAndGet();
+                record(profile + "\n    HTTP " + response.status());
+            } else if (expected == null ? response.result() == null : expected.matches(response.result(), tolerance)) {
+                matched.incrementAndGet();
+                ResultCache.store(profile, response.result(), ResultCache.Source.HTTP);
+            } else {
+                mismatched.incrementAndGet();
+                record(profile + "\n    expected " + expected + "\n    actual   " + response.result()
+                    + (response.message().isEmpty() ? "" : " '" + response.message() + "'"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errors.incrementAndGet();
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            record(profile + "\n    exception " + e);
+        }
+    }
+    
+    private void record(String mismatch) {
+        if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+            mismatches.add(mismatch);
+        }
+    }
+    
+    private void printReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        
+        System.out.println("\nHTTP Fast Path Summary");
+        System.out.println("Profiles submitted: " + profiles + " in " + elapsedNanos / 1_000_000 + " ms ("
+            + String.format("%,.0f", profiles / seconds) + " profiles/s)");
+        if (latency.count() > 0) {
+            System.out.println(String.format("Latency: p50=%.1f ms p99=%.1f ms max=%.1f ms",
+                latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, latency.maxNanos() / 1e6));
+        }
+        System.out.println("Matched oracle: " + matched.get());
+        System.out.println("Mismatches: " + mismatched.get());
+        System.out.println("Errors: " + errors.get());
+        for (String mismatch : mismatches) {
+            System.out.println("  " + mismatch);
+        }
+        System.out.println("=======================================");
+    }
+}
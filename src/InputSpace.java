@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The calculator's input dimensions as equivalence classes, and scenarios generated from a covering array
+ * Units, sex and activity are taken as they are; age, height and weight are split into boundary, extreme,
+ * nominal and invalid classes. Valid classes are combined t-way (--strength, pairwise by default), weighted
+ * by how likely they are to expose a defect. Each invalid class gets one test of its own with every other
+ * field nominal, so one rejected field never hides the rest of a combination.
+ */
+final class InputSpace {
+    
+    /**
+     * One equivalence class: its label, risk weight (0 for invalid), and the value typed in each unit system
+     * US heights are feet and inches, metric ones centimetres with no inches.
+     */
+    record Level(String label, double risk, String metric, String usMajor, String usMinor) {
+        
+        boolean valid() {
+            return risk > 0;
+        }
+    }
+    
+    private static final List<Level> UNITS = List.of(
+        new Level("metric", 1, null, null, null),
+        // Conversions are where unit-specific bugs hide
+        new Level("us", 2, null, null, null));
+    
+    private static final List<Level> SEXES = List.of(
+        new Level("male", 1, null, null, null),
+        new Level("female", 1, null, null, null));
+    
+    private static final List<Level> ACTIVITIES = List.of(
+        new Level("sedentary", 2, "1.2", "1.2", null),
+        new Level("light", 1, "1.375", "1.375", null),
+        new Level("active", 1, "1.55", "1.55", null),
+        new Level("very-active", 2, "1.725", "1.725", null));
+    
+    private static final List<Level> AGES = List.of(
+        new Level("min", 3, "18", "18", null),
+        new Level("nominal", 1, "45", "45", null),
+        new Level("max", 3, "80", "80", null),
+        new Level("below-min", 0, "17", "17", null),
+        new Level("above-max", 0, "81", "81", null),
+        new Level("non-numeric", 0, "abc", "abc", null));
+    
+    private static final List<Level> HEIGHTS = List.of(
+        new Level("short", 2, "140", "4", "7"),
+        new Level("nominal", 1, "175", "5", "9"),
+        new Level("tall", 2, "220", "7", "3"),
+        new Level("zero", 0, "0", "0", "0"));
+    
+    private static final List<Level> WEIGHTS = List.of(
+        new Level("light", 2, "40", "88", null),
+        new Level("nominal", 1, "75", "165", null),
+        new Level("heavy", 2, "150", "330", null),
+        new Level("zero", 0, "0", "0", null));
+    
+    private static final List<List<Level>> DIMENSIONS = List.of(UNITS, SEXES, ACTIVITIES, AGES, HEIGHTS, WEIGHTS);
+    private static final String[] DIMENSION_NAMES = {"units", "sex", "activity", "age", "height", "weight"};
+    private static final int NOMINAL = 1;
+    
+    private InputSpace() {
+    }
+    
+    /**
+     * Covering-array scenarios riskiest first, followed by one single-fault scenario per invalid class
+     * Each scenario is one calculate step whose expectation comes from the reference oracle.
+     */
+    static List<Scenario> generate(SuiteConfig config) {
+        int strength = config.getInt("strength", 2);
+        double[][] weights = new double[DIMENSIONS.size()][];
+        for (int d = 0; d < DIMENSIONS.size(); d++) {
+            weights[d] = DIMENSIONS.get(d).stream().mapToDouble(Level::risk).toArray();
+        }
+        List<int[]> rows = new CoveringArray(weights, strength, config.getInt("candidates", 30),
+            config.getLong("seed", 42L)).generate();
+        
+        List<Scenario> scenarios = new ArrayList<>();
+        String prefix = strength == 2 ? "pairwise" : strength + "-way";
+        for (int[] row : rows) {
+            scenarios.add(scenario(String.format("CA%03d", scenarios.size() + 1), prefix, row));
+        }
+        for (int d = 0; d < DIMENSIONS.size(); d++) {
+            for (int v = 0; v < DIMENSIONS.get(d).size(); v++) {
+                if (!DIMENSIONS.get(d).get(v).valid()) {
+                    int[] row = {0, 0, NOMINAL, NOMINAL, NOMINAL, NOMINAL};
+                    row[d] = v;
+                    scenarios.add(scenario(String.format("CA%03d", scenarios.size() + 1), "invalid", row));
+                }
+            }
+        }
+        return scenarios;
+    }
+    
+    private static Scenario scenario(String id, String kind, int[] row) {
+        boolean us = row[0] == 1;
+        Level activity = ACTIVITIES.get(row[2]);
+        Level age = AGES.get(row[3]);
+        Level height = HEIGHTS.get(row[4]);
+        Level weight = WEIGHTS.get(row[5]);
+        CalculatorProfile profile = new CalculatorProfile(
+            age.metric(),
+            row[1] == 0 ? Sex.MALE : Sex.FEMALE,
+            us ? UnitSystem.US : UnitSystem.METRIC,
+            us ? height.usMajor() : height.metric(),
+            us ? height.usMinor() : null,
+            us ? weight.usMajor() : weight.metric(),
+            activity.metric());
+        
+        StringBuilder title = new StringBuilder(kind);
+        for (int d = 0; d < row.length; d++) {
+            title.append(' ').append(DIMENSION_NAMES[d]).append('=').append(DIMENSIONS.get(d).get(row[d]).label());
+        }
+        ScenarioStep.Expectation expectation = ScenarioStep.Expectation.parse(
+            CarbOracle.expected(profile) == null ? "rejected" : "result");
+        ScenarioStep step = new ScenarioStep(id, 1, title.toString(), FormFiller.Mode.BATCH,
+            ScenarioStep.Action.CALCULATE, profile, expectation);
+        return new Scenario(id, title.toString(), List.of(step));
+    }
+    
+    /**
+     * Write generated scenarios in the scenario CSV format, so a plan can be reviewed or pinned as a data file
+     */
+    static void writeCsv(List<Scenario> scenarios, Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("scenario,step,title,mode,action,units,age,sex,height,inches,weight,activity,expect\n");
+            for (Scenario scenario : scenarios) {
+                for (ScenarioStep step : scenario.steps()) {
+                    CalculatorProfile profile = step.profile();
+                    out.write(String.join(",", step.scenarioId(), String.valueOf(step.step()), step.title(),
+                        step.mode().name().toLowerCase(), step.action().name().toLowerCase(),
+                        profile.units() == UnitSystem.US ? "us" : "metric", profile.age(),
+                        profile.sex().name().toLowerCase(), profile.height(),
+                        profile.heightInches() == null ? "" : profile.heightInches(), profile.weight(),
+                        profile.activity(), step.expectation().toString()));
+                    out.write('\n');
+                }
+            }
+        }
+    }
+}
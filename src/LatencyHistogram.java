@@ -0,0 +1,90 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram over nanosecond samples
+ * Buckets are log-linear: every power of two is split into 32 equal sub-buckets, so any reported
+ * percentile is within about 3% of the true value while recording stays a few atomic increments.
+ */
+final class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below 2^SUB_BUCKET_BITS get exact buckets, everything up to 2^62 ns fits the rest
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final long MAX_TRACKABLE = (1L << 62) - 1;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong minNanos = new AtomicLong(Long.MAX_VALUE);
+    
+    void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_TRACKABLE));
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+        maxNanos.accumulateAndGet(value, Math::max);
+        minNanos.accumulateAndGet(value, Math::min);
+    }
+    
+    long count() {
+        return count.get();
+    }
+    
+    long totalNanos() {
+        return totalNanos.get();
+    }
+    
+    long maxNanos() {
+        return count() == 0 ? 0 : maxNanos.get();
+    }
+    
+    long minNanos() {
+        return count() == 0 ? 0 : minNanos.get();
+    }
+    
+    long meanNanos() {
+        long samples = count();
+        return samples == 0 ? 0 : totalNanos() / samples;
+    }
+    
+    /**
+     * Value at the given percentile (0-100), reported as the upper edge of its bucket and capped at the max seen
+     */
+    long percentile(double percentile) {
+        long samples = count();
+        if (samples == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(samples * Math.min(100, percentile) / 100.0));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperEdge(bucket), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+    
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+    
+    private static long upperEdge(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
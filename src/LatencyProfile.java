@@ -0,0 +1,35 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Artificial response latency injected by the local stand-in server
+ * Every response waits pageMs, calculations wait submitMs on top, and both get up to jitterMs of random spread.
+ */
+record LatencyProfile(long pageMs, long submitMs, long jitterMs) {
+    
+    static final LatencyProfile NONE = new LatencyProfile(0, 0, 0);
+    
+    static LatencyProfile from(SuiteConfig config) {
+        return new LatencyProfile(
+            Math.max(0, config.getInt("stub-latency-ms", 0)),
+            Math.max(0, config.getInt("stub-submit-latency-ms", 0)),
+            Math.max(0, config.getInt("stub-jitter-ms", 0)));
+    }
+    
+    /**
+     * Sleep for the configured latency of a page view or a calculation
+     */
+    void apply(boolean submit) throws InterruptedException {
+        long delay = pageMs + (submit ? submitMs : 0);
+        if (jitterMs > 0) {
+            delay += ThreadLocalRandom.current().nextLong(jitterMs + 1);
+        }
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "page=" + pageMs + "ms submit=+" + submitMs + "ms jitter=" + jitterMs + "ms";
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load-compare mode: measure page-load and post-click times with and without request blocking
+ * One session runs with the configured load profile and one with blocking switched off. Rounds alternate
+ * between them so network drift hits both equally. Each round does a full page load and one calculation.
+ */
+final class LoadComparison {
+    
+    private final SuiteConfig config;
+    private final int rounds;
+    private final long seed;
+    private final String calculatorUrl;
+    
+    LoadComparison(SuiteConfig config) {
+        this.config = config;
+        this.rounds = Math.max(1, config.getInt("samples", 10));
+        this.seed = config.getLong("seed", 42L);
+        this.calculatorUrl = config.calculatorUrl();
+    }
+    
+    void run() {
+        LoadProfile configured = LoadProfile.from(config);
+        Map<String, LoadProfile> variants = new LinkedHashMap<>();
+        variants.put("unblocked", configured.withBlocking(false));
+        variants.put("blocked", configured.withBlocking(true));
+        
+        CarbOracle.ProfileBatch batch = new CarbOracle.ProfileBatch(rounds);
+        batch.generate(seed);
+        
+        Map<String, BrowserSession> sessions = new LinkedHashMap<>();
+        Map<String, LatencyHistogram> loads = new LinkedHashMap<>();
+        Map<String, LatencyHistogram> calculations = new LinkedHashMap<>();
+        try {
+            int id = 1;
+            for (Map.Entry<String, LoadProfile> variant : variants.entrySet()) {
+                System.out.println("  " + variant.getKey() + ": " + variant.getValue());
+                sessions.put(variant.getKey(), BrowserSession.open(id++, config.resultTimeout(), variant.getValue()));
+                loads.put(variant.getKey(), new LatencyHistogram());
+                calculations.put(variant.getKey(), new LatencyHistogram());
+            }
+            
+            for (int round = 0; round < rounds; round++) {
+                CalculatorProfile profile = batch.toProfile(round);
+                for (Map.Entry<String, BrowserSession> entry : sessions.entrySet()) {
+                    BrowserSession session = entry.getValue();
+                    session.setPageLoaded(false);
+                    
+                    long start = System.nanoTime();
+                    session.navigateToCalculatorSmart(calculatorUrl);
+                    loads.get(entry.getKey()).record(System.nanoTime() - start);
+                    
+                    start = System.nanoTime();
+                    new FormFiller(session).fillAndCalculate(profile);
+                    calculations.get(entry.getKey()).record(System.nanoTime() - start);
+                }
+            }
+        } finally {
+            for (BrowserSession session : sessions.values()) {
+                session.quit();
+            }
+        }
+        
+        printReport(loads, calculations);
+    }
+    
+    private void printReport(Map<String, LatencyHistogram> loads, Map<String, LatencyHistogram> calculations) {
+        System.out.println("\nLoad Profile Comparison (" + rounds + " rounds, ms)");
+        System.out.println(String.format("  %-10s %-12s %9s %9s %9s", "variant", "step", "p50", "p90", "max"));
+        for (String variant : loads.keySet()) {
+            printRow(variant, "page load", loads.get(variant));
+            printRow(variant, "post-click", calculations.get(variant));
+        }
+        System.out.println(String.format("Blocking gain at p50: page load %s, post-click %s",
+            gain(loads.get("unblocked"), loads.get("blocked")),
+            gain(calculations.get("unblocked"), calculations.get("blocked"))));
+        System.out.println("=======================================");
+    }
+    
+    private static void printRow(String variant, String step, LatencyHistogram histogram) {
+        System.out.println(String.format("  %-10s %-12s %9.1f %9.1f %9.1f", variant, step,
+            histogram.percentile(50) / 1e6, histogram.percentile(90) / 1e6, histogram.maxNanos() / 1e6));
+    }
+    
+    private static String gain(LatencyHistogram without, LatencyHistogram with) {
+        long before = without.percentile(50);
+        long after = with.percentile(50);
+        if (before == 0) {
+            return "n/a";
+        }
+        return String.format("%+.1f%% (%.1f ms)", (after - before) * 100.0 / before, (after - before) / 1e6);
+    }
+}
@@ -0,0 +1,287 @@
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load mode: replay the scenario profiles as an open-loop HTTP load at a target rate
+ * Requests are scheduled on a fixed timetable (--rate per second after a linear --ramp-up-s) for --duration-s,
+ * with at most --concurrency in flight. Latency is measured from each request's scheduled start, not from
+ * when it was actually sent, so time spent queued behind a slow target counts against the target instead
+ * of silently lowering the rate (coordinated omission). Results go into one histogram per second.
+ */
+final class LoadGenerator {
+    
+    /**
+     * Completions within one second of the run
+     */
+    private static final class Second {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+    
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private final SuiteConfig config;
+    private final double rate;
+    private final int concurrency;
+    private final double rampUpSeconds;
+    private final double durationSeconds;
+    
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final Map<String, LongAdder> errorsByType = new ConcurrentHashMap<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final Second[] seconds;
+    private long startNanos;
+    
+    LoadGenerator(SuiteConfig config) {
+        this.config = config;
+        this.rate = config.getDouble("rate", 200);
+        this.concurrency = Math.max(1, config.getInt("concurrency", 64));
+        this.rampUpSeconds = Math.max(0, config.getDouble("ramp-up-s", 5));
+        this.durationSeconds = config.getDouble("duration-s", 30);
+        if (rate <= 0 || durationSeconds <= 0) {
+            throw new IllegalArgumentException("--rate and --duration-s must be positive");
+        }
+        // One slot per second of the run plus a few for requests that complete after the schedule ends
+        this.seconds = new Second[(int) Math.ceil(durationSeconds) + 10];
+        for (int i = 0; i < seconds.length; i++) {
+            seconds[i] = new Second();
+        }
+    }
+    
+    void run() throws IOException, InterruptedException {
+        List<CalculatorProfile> profiles = scenarioProfiles(config);
+        System.out.println(String.format("Load test: %.0f req/s after %.0f s ramp-up for %.0f s, concurrency %d, %d scenario profiles%s",
+            rate, rampUpSeconds, durationSeconds, concurrency, profiles.size(),
+            Workers.virtualThreadsAvailable() ? " (virtual threads)" : " (platform threads)"));
+        
+        ExecutorService executor = Workers.newTaskExecutor("load");
+        HttpCalculatorClient client = new HttpCalculatorClient(config.calculatorUrl(), config.resultTimeout(), executor);
+        Semaphore inFlight = new Semaphore(concurrency);
+        long durationNanos = (long) (durationSeconds * 1e9);
+        startNanos = System.nanoTime();
+        
+        try {
+            for (long n = 0; ; n++) {
+                long intended = startNanos + scheduledOffsetNanos(n);
+                if (intended - startNanos >= durationNanos) {
+                    break;
+                }
+                for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                // Blocks when the target is saturated; the scheduled start keeps ticking while we wait
+                inFlight.acquire();
+                CalculatorProfile profile = profiles.get((int) (n % profiles.size()));
+                sent.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        submit(client, profile, intended);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(concurrency);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        
+        long elapsed = System.nanoTime() - startNanos;
+        printReport(elapsed);
+        Path report = writeReport(elapsed);
+        System.out.println("Load report: " + report);
+    }
+    
+    /**
+     * When request n is due, relative to the start: the rate climbs linearly over the ramp-up, then stays flat
+     */
+    long scheduledOffsetNanos(long n) {
+        double rampRequests = rate * rampUpSeconds / 2;
+        double seconds = rampUpSeconds > 0 && n < rampRequests
+            ? Math.sqrt(2 * rampUpSeconds * n / rate)
+            : rampUpSeconds + (n - rampRequests) / rate;
+        return (long) (seconds * 1e9);
+    }
+    
+    private void submit(HttpCalculatorClient client, CalculatorProfile profile, long intendedNanos) {
+        long sendNanos = System.nanoTime();
+        String error = null;
+        try {
+            HttpCalculatorClient.Response response = client.submit(profile);
+            if (response.status() != 200) {
+                error = "http-" + response.status();
+            } else {
+                CalculationResult expected = CarbOracle.expected(profile);
+                boolean matches = expected == null ? response.result() == null
+                    : expected.matches(response.result(), config.tolerance());
+                if (!matches) {
+                    error = "mismatch";
+                }
+            }
+        } catch (HttpTimeoutException e) {
+            error = "timeout";
+        } catch (ConnectException e) {
+            error = "connect";
+        } catch (IOException e) {
+            error = "io";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "interrupted";
+        } catch (RuntimeException e) {
+            error = e.getClass().getSimpleName();
+        }
+        
+        long end = System.nanoTime();
+        latency.record(end - intendedNanos);
+        serviceTime.record(end - sendNanos);
+        Second second = seconds[(int) Math.min(seconds.length - 1, (end - startNanos) / 1_000_000_000L)];
+        second.latency.record(end - intendedNanos);
+        if (error != null) {
+            second.errors.increment();
+            errorsByType.computeIfAbsent(error, type -> new LongAdder()).increment();
+        }
+    }
+    
+    /**
+     * Every calculate step of the configured scenario files, in file order
+     * Validate steps never submit the form, so they have no request to replay.
+     */
+    static List<CalculatorProfile> scenarioProfiles(SuiteConfig config) throws IOException {
+        List<CalculatorProfile> profiles = new ArrayList<>();
+        try (Scenario.Reader reader = new Scenario.Reader(Scenario.files(config.scenarioLocations()))) {
+            while (reader.hasNext()) {
+                for (ScenarioStep step : reader.next().steps()) {
+                    if (step.action() == ScenarioStep.Action.CALCULATE) {
+                        profiles.add(step.profile());
+                    }
+                }
+            }
+        }
+        if (profiles.isEmpty()) {
+            throw new IllegalArgumentException("No calculate steps in " + config.scenarioLocations());
+        }
+        return profiles;
+    }
+    
+    private int lastSecond() {
+        int last = 0;
+        for (int i = 0; i < seconds.length; i++) {
+            if (seconds[i].latency.count() > 0) {
+                last = i;
+            }
+        }
+        return last;
+    }
+    
+    private long errorCount() {
+        return errorsByType.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+    
+    private void printReport(long elapsedNanos) {
+        System.out.println("\nLoad Test Summary");
+        System.out.println(String.format("Requests: %d sent, %d completed in %.1f s (%.1f req/s, target %.0f)",
+            sent.get(), latency.count(), elapsedNanos / 1e9, latency.count() / (elapsedNanos / 1e9), rate));
+        printPercentiles("Latency from scheduled start", latency);
+        printPercentiles("Service time", serviceTime);
+        System.out.println(String.format("Errors: %d (%.2f%%)", errorCount(),
+            latency.count() == 0 ? 0 : errorCount() * 100.0 / latency.count()));
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(errorsByType).entrySet()) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getValue().sum());
+        }
+        
+        System.out.println(String.format("  %5s %8s %9s %9s %9s %9s %7s", "t(s)", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors"));
+        for (int i = 0; i <= lastSecond(); i++) {
+            LatencyHistogram histogram = seconds[i].latency;
+            System.out.println(String.format("  %5d %8d %9.1f %9.1f %9.1f %9.1f %7d", i, histogram.count(),
+                histogram.percentile(50) / 1e6, histogram.percentile(90) / 1e6, histogram.percentile(99) / 1e6,
+                histogram.maxNanos() / 1e6, seconds[i].errors.sum()));
+        }
+        System.out.println("=======================================");
+    }
+    
+    private static void printPercentiles(String label, LatencyHistogram histogram) {
+        System.out.println(String.format("%s: p50=%.1f ms p90=%.1f ms p99=%.1f ms p99.9=%.1f ms max=%.1f ms", label,
+            histogram.percentile(50) / 1e6, histogram.percentile(90) / 1e6, histogram.percentile(99) / 1e6,
+            histogram.percentile(99.9) / 1e6, histogram.maxNanos() / 1e6));
+    }
+    
+    /**
+     * Write the summary and the per-second series as JSON, --load-report overrides the reports/ default
+     */
+    private Path writeReport(long elapsedNanos) throws IOException {
+        Path report = Path.of(config.get("load-report",
+            "reports/load-" + LocalDateTime.now().format(FILE_STAMP) + ".json"));
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(report, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(out)) {
+            json.setIndent("  ");
+            json.beginObject();
+            json.name("generatedAt").value(Instant.now().toString());
+            json.name("target").value(config.calculatorUrl());
+            json.name("rate").value(rate);
+            json.name("concurrency").value(concurrency);
+            json.name("rampUpSeconds").value(rampUpSeconds);
+            json.name("durationSeconds").value(durationSeconds);
+            json.name("unit").value("ns");
+            json.name("sent").value(sent.get());
+            json.name("completed").value(latency.count());
+            json.name("elapsed").value(elapsedNanos);
+            json.name("latency");
+            writeHistogram(json, latency);
+            json.name("serviceTime");
+            writeHistogram(json, serviceTime);
+            json.name("errors").beginObject();
+            for (Map.Entry<String, LongAdder> entry : new TreeMap<>(errorsByType).entrySet()) {
+                json.name(entry.getKey()).value(entry.getValue().sum());
+            }
+            json.endObject();
+            json.name("series").beginArray();
+            for (int i = 0; i <= lastSecond(); i++) {
+                json.beginObject();
+                json.name("second").value(i);
+                json.name("errors").value(seconds[i].errors.sum());
+                json.name("latency");
+                writeHistogram(json, seconds[i].latency);
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        return report;
+    }
+    
+    private static void writeHistogram(JsonWriter json, LatencyHistogram histogram) throws IOException {
+        json.beginObject();
+        json.name("count").value(histogram.count());
+        json.name("p50").value(histogram.percentile(50));
+        json.name("p90").value(histogram.percentile(90));
+        json.name("p99").value(histogram.percentile(99));
+        json.name("p999").value(histogram.percentile(99.9));
+        json.name("max").value(histogram.maxNanos());
+        json.endObject();
+    }
+}
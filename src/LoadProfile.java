@@ -0,0 +1,105 @@
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * How lean the Chrome sessions load the calculator page
+ * Third-party hosts (ads, analytics, trackers) are cut off with a host-resolver allow-list, so only the
+ * calculator's own hosts and loopback resolve. Heavy resources on the allowed hosts are dropped with the
+ * DevTools Network.setBlockedURLs command. Headless mode and the page-load strategy are configurable too.
+ */
+record LoadProfile(boolean headless, PageLoadStrategy pageLoadStrategy, boolean blockThirdParty,
+                   Set<String> allowedHosts, List<String> blockedUrlPatterns) {
+    
+    static final List<String> DEFAULT_BLOCKED_PATTERNS = List.of(
+        "*.png", "*.jpg", "*.jpeg", "*.gif", "*.webp", "*.svg", "*.ico", "*.woff", "*.woff2", "*.ttf");
+    
+    static LoadProfile from(SuiteConfig config) {
+        PageLoadStrategy strategy = PageLoadStrategy.fromString(config.get("page-load-strategy", "normal"));
+        if (strategy == null) {
+            throw new IllegalArgumentException("--page-load-strategy must be normal, eager or none");
+        }
+        
+        Set<String> hosts = new LinkedHashSet<>();
+        String host = URI.create(config.calculatorUrl()).getHost();
+        // Loopback IP literals never go through the resolver, only named hosts need an exclusion
+        if (host != null && !host.matches("[\\d.]+|\\[.*]")) {
+            String site = host.startsWith("www.") ? host.substring(4) : host;
+            hosts.add(site);
+            hosts.add("*." + site);
+        }
+        hosts.addAll(split(config.get("allow-hosts", "")));
+        
+        String patterns = config.get("block-url-patterns", null);
+        return new LoadProfile(
+            Boolean.parseBoolean(config.get("headless", "false")),
+            strategy,
+            Boolean.parseBoolean(config.get("block-third-party", "true")),
+            hosts,
+            patterns == null ? DEFAULT_BLOCKED_PATTERNS : split(patterns));
+    }
+    
+    /**
+     * Same profile with blocking switched on or off, for with/without comparisons
+     */
+    LoadProfile withBlocking(boolean blocking) {
+        return new LoadProfile(headless, pageLoadStrategy, blocking, allowedHosts,
+            blocking ? blockedUrlPatterns : List.of());
+    }
+    
+    /**
+     * True when the page's own scripts may still be running after navigation returns
+     */
+    boolean waitsForFullLoad() {
+        return pageLoadStrategy == PageLoadStrategy.NORMAL;
+    }
+    
+    void applyTo(ChromeOptions options) {
+        options.setPageLoadStrategy(pageLoadStrategy);
+        if (headless) {
+            options.addArguments("--headless=new");
+            options.addArguments("--window-size=1920,1080");
+        }
+        if (blockThirdParty) {
+            // Every host outside the allow-list fails to resolve, IP literals such as 127.0.0.1 are unaffected
+            StringBuilder rules = new StringBuilder("MAP * ~NOTFOUND, EXCLUDE localhost");
+            for (String host : allowedHosts) {
+                rules.append(", EXCLUDE ").append(host);
+            }
+            options.addArguments("--host-resolver-rules=" + rules);
+        }
+    }
+    
+    /**
+     * DevTools commands that have to be sent once the session is running
+     */
+    void applyTo(ChromeDriver driver) {
+        if (!blockedUrlPatterns.isEmpty()) {
+            driver.executeCdpCommand("Network.enable", Map.of());
+            driver.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", blockedUrlPatterns));
+        }
+    }
+    
+    private static List<String> split(String list) {
+        List<String> values = new ArrayList<>();
+        for (String value : list.split(",")) {
+            if (!value.isBlank()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+    
+    @Override
+    public String toString() {
+        return (headless ? "headless" : "headed") + ", page load " + pageLoadStrategy
+            + (blockThirdParty ? ", third-party blocked (allow " + String.join(" ", allowedHosts) + ")" : ", no host blocking")
+            + (blockedUrlPatterns.isEmpty() ? "" : ", " + blockedUrlPatterns.size() + " URL patterns blocked");
+    }
+}
@@ -0,0 +1,248 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Offline stand-in for calculator.net served from the JDK's embedded HTTP server
+ * Serves the recorded snapshot in stub/carbohydrate-calculator.html, computes results for submitted forms
+ * and applies an injectable latency profile so runs are reproducible without the network.
+ */
+final class LocalCalculatorServer implements AutoCloseable {
+    
+    static final String PAGE_PATH = "/carbohydrate-calculator.html";
+    
+    private static final String[][] ACTIVITY_OPTIONS = {
+        {"1", "Basal Metabolic Rate (BMR)"},
+        {"1.2", "Sedentary: little or no exercise"},
+        {"1.375", "Light: exercise 1-3 times/week"},
+        {"1.465", "Moderate: exercise 4-5 times/week"},
+        {"1.55", "Active: daily exercise or intense exercise 3-4 times/week"},
+        {"1.725", "Very Active: intense exercise 6-7 times/week"},
+        {"1.9", "Extra Active: very intense exercise daily, or physical job"}
+    };
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String template;
+    private final LatencyProfile latency;
+    
+    private LocalCalculatorServer(HttpServer server, ExecutorService executor, String template, LatencyProfile latency) {
+        this.server = server;
+        this.executor = executor;
+        this.template = template;
+        this.latency = latency;
+    }
+    
+    /**
+     * Start the stand-in on the configured port (--stub-port, 0 picks a free one)
+     */
+    static LocalCalculatorServer start(SuiteConfig config) throws IOException {
+        Path page = Path.of(config.get("stub-page", "stub/carbohydrate-calculator.html"));
+        String template = Files.readString(page, StandardCharsets.UTF_8);
+        
+        // Headers and body go out in separate writes, without TCP_NODELAY every response waits on a delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        HttpServer server = HttpServer.create(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getInt("stub-port", 0)), 0);
+        // Latency sleeps block a handler thread, so handlers get their own unbounded pool
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "calculator-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        LocalCalculatorServer stub = new LocalCalculatorServer(server, executor, template, LatencyProfile.from(config));
+        server.createContext("/", stub::handle);
+        server.setExecutor(executor);
+        server.start();
+        return stub;
+    }
+    
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + PAGE_PATH;
+    }
+    
+    LatencyProfile latency() {
+        return latency;
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (!path.equals("/") && !path.equals(PAGE_PATH)) {
+                send(exchange, 404, "text/plain", "Not found");
+                return;
+            }
+            
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            boolean submit = params.containsKey("x");
+            latency.apply(submit);
+            
+            send(exchange, 200, "text/html; charset=utf-8", render(params, submit));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "text/plain", "Server stopping");
+        } catch (RuntimeException e) {
+            send(exchange, 500, "text/plain", "Stub error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Fill the snapshot template, echoing submitted values back into the form like the live page does
+     */
+    String render(Map<String, String> params, boolean submit) {
+        boolean us = "us".equals(params.get("ctype"));
+        Map<String, String> values = new HashMap<>();
+        values.put("ctype", us ? "us" : "metric");
+        values.put("cage", escape(params.getOrDefault("cage", "25")));
+        values.put("maleChecked", "f".equals(params.get("csex")) ? "" : " checked");
+        values.put("femaleChecked", "f".equals(params.get("csex")) ? " checked" : "");
+        values.put("cheightfeet", escape(params.getOrDefault("cheightfeet", "5")));
+        values.put("cheightinch", escape(params.getOrDefault("cheightinch", "10")));
+        values.put("cpound", escape(params.getOrDefault("cpound", "160")));
+        values.put("cheightmeter", escape(params.getOrDefault("cheightmeter", "180")));
+        values.put("ckg", escape(params.getOrDefault("ckg", "65")));
+        values.put("usDisplay", us ? "" : "display:none");
+        values.put("metricDisplay", us ? "display:none" : "");
+        values.put("usTabClass", us ? "topNavOn" : "");
+        values.put("metricTabClass", us ? "" : "topNavOn");
+        values.put("activityOptions", activityOptions(params.getOrDefault("cactivity", "1.375")));
+        values.put("result", submit ? renderResult(params, us) : "");
+        
+        StringBuilder html = new StringBuilder(template.length() + 1024);
+        int from = 0;
+        int start;
+        while ((start = template.indexOf("${", from)) >= 0) {
+            int end = template.indexOf('}', start);
+            html.append(template, from, start);
+            html.append(values.getOrDefault(template.substring(start + 2, end), ""));
+            from = end + 1;
+        }
+        html.append(template, from, template.length());
+        return html.toString();
+    }
+    
+    private static String renderResult(Map<String, String> params, boolean us) {
+        double age = parse(params.get("cage"));
+        if (Double.isNaN(age) || age < CarbOracle.MIN_AGE || age > CarbOracle.MAX_AGE) {
+            return error("Please provide an age between 18 and 80.");
+        }
+        
+        double heightCm;
+        double weightKg;
+        if (us) {
+            double feet = parse(params.get("cheightfeet"));
+            double inches = parse(params.getOrDefault("cheightinch", "0"));
+            heightCm = (feet * 12 + (Double.isNaN(inches) ? 0 : inches)) * CarbOracle.CM_PER_INCH;
+            weightKg = parse(params.get("cpound")) * CarbOracle.KG_PER_POUND;
+        } else {
+            heightCm = parse(params.get("cheightmeter"));
+            weightKg = parse(params.get("ckg"));
+        }
+        if (Double.isNaN(heightCm) || heightCm <= 0) {
+            return error("Please provide positive height value.");
+        }
+        if (Double.isNaN(weightKg) || weightKg <= 0) {
+            return error("Please provide positive weight value.");
+        }
+        
+        double activity = parse(params.getOrDefault("cactivity", "1.375"));
+        boolean male = !"f".equals(params.get("csex"));
+        
+        double calories = CarbOracle.tdee(age, male, heightCm, weightKg, activity);
+        
+        StringBuilder html = new StringBuilder();
+        html.append("<h2 class=\"h2result\">Result</h2>\n<table class=\"cinfoT\">\n");
+        html.append("<tr><td class=\"cinfoHd\">Daily calorie need</td><td class=\"cinfoHd\">")
+            .append(String.format("%,d", Math.round(calories))).append(" Calories/day</td></tr>\n");
+        for (int percent : CarbOracle.CARB_PERCENTAGES) {
+            html.append("<tr><td>").append(percent).append("%</td><td>")
+                .append(String.format("%,d", Math.round(CarbOracle.carbGrams(calories, percent))))
+                .append(" grams</td></tr>\n");
+        }
+        html.append("</table>\n");
+        return html.toString();
+    }
+    
+    private static String error(String message) {
+        return "<div class=\"inputErrMsg\">" + message + "</div>\n";
+    }
+    
+    private static String activityOptions(String selected) {
+        StringBuilder html = new StringBuilder();
+        for (String[] option : ACTIVITY_OPTIONS) {
+            html.append("<option value=\"").append(option[0]).append('"')
+                .append(option[0].equals(selected) ? " selected" : "")
+                .append('>').append(option[1]).append("</option>\n");
+        }
+        return html.toString();
+    }
+    
+    private static double parse(String value) {
+        if (value == null || value.isBlank()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+    
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+    
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+    
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * Run the stand-in on its own, e.g. java -cp ".:lib/*" LocalCalculatorServer --stub-port=8080
+     */
+    public static void main(String[] args) throws IOException {
+        SuiteConfig config = SuiteConfig.fromArgs(args);
+        LocalCalculatorServer stub = start(config);
+        System.out.println("Local calculator stand-in serving " + stub.url());
+        System.out.println("Latency profile: " + stub.latency());
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+    }
+}
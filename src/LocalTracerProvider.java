@@ -0,0 +1,281 @@
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.context.Context;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal recording implementation of the OpenTelemetry tracing API
+ * lib/ ships only opentelemetry-api and opentelemetry-context, not the SDK, so this provider creates
+ * spans itself and hands every finished span to an OtlpJsonFileExporter. No collector is needed.
+ */
+final class LocalTracerProvider implements TracerProvider {
+    
+    /**
+     * Immutable copy of an ended span, as the exporter sees it
+     */
+    record FinishedSpan(String scope, String traceId, String spanId, String parentSpanId, String name, SpanKind kind,
+                        long startEpochNanos, long endEpochNanos, Attributes attributes, List<Event> events,
+                        StatusCode status, String statusMessage) {
+    }
+    
+    record Event(String name, long epochNanos, Attributes attributes) {
+    }
+    
+    private final OtlpJsonFileExporter exporter;
+    // Wall clock at start paired with nanoTime, so span timestamps keep nanosecond resolution
+    private final long anchorEpochNanos;
+    private final long anchorNanoTime;
+    
+    LocalTracerProvider(OtlpJsonFileExporter exporter) {
+        this.exporter = exporter;
+        Instant now = Instant.now();
+        this.anchorNanoTime = System.nanoTime();
+        this.anchorEpochNanos = TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+    }
+    
+    @Override
+    public Tracer get(String instrumentationScopeName) {
+        return spanName -> new RecordingSpanBuilder(instrumentationScopeName, spanName);
+    }
+    
+    @Override
+    public Tracer get(String instrumentationScopeName, String instrumentationScopeVersion) {
+        return get(instrumentationScopeName);
+    }
+    
+    /**
+     * Convert a System.nanoTime() reading to epoch nanoseconds on this provider's clock
+     */
+    long toEpochNanos(long nanoTime) {
+        return anchorEpochNanos + (nanoTime - anchorNanoTime);
+    }
+    
+    long nowEpochNanos() {
+        return toEpochNanos(System.nanoTime());
+    }
+    
+    private static String randomHex(int bytes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder hex = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i++) {
+            int value = i == 0 ? random.nextInt(1, 256) : random.nextInt(256);
+            hex.append(Character.forDigit(value >> 4, 16)).append(Character.forDigit(value & 0xf, 16));
+        }
+        return hex.toString();
+    }
+    
+    private final class RecordingSpanBuilder implements SpanBuilder {
+        private final String scope;
+        private final String name;
+        private final AttributesBuilder attributes = Attributes.builder();
+        private Context parent;
+        private boolean noParent;
+        private SpanKind kind = SpanKind.INTERNAL;
+        private long startEpochNanos;
+        
+        RecordingSpanBuilder(String scope, String name) {
+            this.scope = scope;
+            this.name = name;
+        }
+        
+        @Override
+        public SpanBuilder setParent(Context context) {
+            this.parent = context;
+            this.noParent = false;
+            return this;
+        }
+        
+        @Override
+        public SpanBuilder setNoParent() {
+            this.noParent = true;
+            return this;
+        }
+        
+        @Override
+        public SpanBuilder addLink(SpanContext spanContext) {
+            return this;
+        }
+        
+        @Override
+        public SpanBuilder addLink(SpanContext spanContext, Attributes attributes) {
+            return this;
+        }
+        
+        @Override
+        public SpanBuilder setAttribute(String key, String value) {
+            attributes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public SpanBuilder setAttribute(String key, long value) {
+            attributes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public SpanBuilder setAttribute(String key, double value) {
+            attributes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public SpanBuilder setAttribute(String key, boolean value) {
+            attributes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public <T> SpanBuilder setAttribute(AttributeKey<T> key, T value) {
+            if (value != null) {
+                attributes.put(key, value);
+            }
+            return this;
+        }
+        
+        @Override
+        public SpanBuilder setSpanKind(SpanKind spanKind) {
+            this.kind = spanKind;
+            return this;
+        }
+        
+        @Override
+        public SpanBuilder setStartTimestamp(long startTimestamp, TimeUnit unit) {
+            this.startEpochNanos = unit.toNanos(startTimestamp);
+            return this;
+        }
+        
+        @Override
+        public Span startSpan() {
+            SpanContext parentContext = noParent
+                ? SpanContext.getInvalid()
+                : Span.fromContext(parent != null ? parent : Context.current()).getSpanContext();
+            String traceId = parentContext.isValid() ? parentContext.getTraceId() : randomHex(16);
+            SpanContext context = SpanContext.create(traceId, randomHex(8), TraceFlags.getSampled(), TraceState.getDefault());
+            return new RecordingSpan(scope, name, kind, context,
+                parentContext.isValid() ? parentContext.getSpanId() : "",
+                startEpochNanos != 0 ? startEpochNanos : nowEpochNanos(), attributes);
+        }
+    }
+    
+    private final class RecordingSpan implements Span {
+        private final String scope;
+        private final SpanKind kind;
+        private final SpanContext context;
+        private final String parentSpanId;
+        private final long startEpochNanos;
+        private final AttributesBuilder attributes;
+        private final List<Event> events = new ArrayList<>();
+        private String name;
+        private StatusCode status = StatusCode.UNSET;
+        private String statusMessage = "";
+        private boolean ended;
+        
+        RecordingSpan(String scope, String name, SpanKind kind, SpanContext context, String parentSpanId,
+                      long startEpochNanos, AttributesBuilder attributes) {
+            this.scope = scope;
+            this.name = name;
+            this.kind = kind;
+            this.context = context;
+            this.parentSpanId = parentSpanId;
+            this.startEpochNanos = startEpochNanos;
+            this.attributes = attributes;
+        }
+        
+        @Override
+        public synchronized <T> Span setAttribute(AttributeKey<T> key, T value) {
+            if (!ended && value != null) {
+                attributes.put(key, value);
+            }
+            return this;
+        }
+        
+        @Override
+        public Span addEvent(String eventName, Attributes eventAttributes) {
+            return addEvent(eventName, eventAttributes, nowEpochNanos(), TimeUnit.NANOSECONDS);
+        }
+        
+        @Override
+        public synchronized Span addEvent(String eventName, Attributes eventAttributes, long timestamp, TimeUnit unit) {
+            if (!ended) {
+                events.add(new Event(eventName, unit.toNanos(timestamp), eventAttributes));
+            }
+            return this;
+        }
+        
+        @Override
+        public synchronized Span setStatus(StatusCode statusCode, String description) {
+            if (!ended) {
+                this.status = statusCode;
+                this.statusMessage = description == null ? "" : description;
+            }
+            return this;
+        }
+        
+        @Override
+        public Span recordException(Throwable exception, Attributes additionalAttributes) {
+            StringWriter trace = new StringWriter();
+            exception.printStackTrace(new PrintWriter(trace));
+            return addEvent("exception", Attributes.builder()
+                .put("exception.type", exception.getClass().getName())
+                .put("exception.message", String.valueOf(exception.getMessage()))
+                .put("exception.stacktrace", trace.toString())
+                .putAll(additionalAttributes)
+                .build());
+        }
+        
+        @Override
+        public synchronized Span updateName(String newName) {
+            if (!ended) {
+                this.name = newName;
+            }
+            return this;
+        }
+        
+        @Override
+        public void end() {
+            end(nowEpochNanos(), TimeUnit.NANOSECONDS);
+        }
+        
+        @Override
+        public void end(long timestamp, TimeUnit unit) {
+            FinishedSpan finished;
+            synchronized (this) {
+                if (ended) {
+                    return;
+                }
+                ended = true;
+                finished = new FinishedSpan(scope, context.getTraceId(), context.getSpanId(), parentSpanId, name, kind,
+                    startEpochNanos, unit.toNanos(timestamp), attributes.build(), List.copyOf(events),
+                    status, statusMessage);
+            }
+            exporter.export(finished);
+        }
+        
+        @Override
+        public SpanContext getSpanContext() {
+            return context;
+        }
+        
+        @Override
+        public synchronized boolean isRecording() {
+            return !ended;
+        }
+    }
+}
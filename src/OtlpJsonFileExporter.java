@@ -0,0 +1,200 @@
+import com.google.gson.stream.JsonWriter;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.StatusCode;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes finished spans to a file in OTLP-JSON, the same layout the OpenTelemetry Collector's file exporter uses
+ * Each line is one ExportTraceServiceRequest, so the file can be replayed into a collector or opened in
+ * a trace viewer. Spans are buffered and written in batches, memory stays bounded on long runs.
+ */
+final class OtlpJsonFileExporter implements AutoCloseable {
+    
+    private static final int BATCH_SIZE = 512;
+    
+    private final Path file;
+    private final String serviceName;
+    private final Writer out;
+    private final ConcurrentLinkedQueue<LocalTracerProvider.FinishedSpan> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicInteger exported = new AtomicInteger();
+    
+    OtlpJsonFileExporter(Path file, String serviceName) throws IOException {
+        this.file = file;
+        this.serviceName = serviceName;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+    
+    Path file() {
+        return file;
+    }
+    
+    int exportedSpans() {
+        return exported.get();
+    }
+    
+    void export(LocalTracerProvider.FinishedSpan span) {
+        pending.add(span);
+        if (pendingCount.incrementAndGet() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+    
+    /**
+     * Write everything buffered so far as one request line
+     */
+    synchronized void flush() {
+        List<LocalTracerProvider.FinishedSpan> batch = new ArrayList<>();
+        LocalTracerProvider.FinishedSpan span;
+        while ((span = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(span);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Built in memory first, so a span that cannot be written never leaves half a line in the file
+        StringWriter line = new StringWriter();
+        try {
+            writeRequest(line, batch);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Dropping " + batch.size() + " spans that cannot be written to " + file + ": "
+                + e.getMessage());
+            return;
+        }
+        try {
+            out.write(line.toString());
+            out.write('\n');
+            out.flush();
+            exported.addAndGet(batch.size());
+        } catch (IOException e) {
+            System.err.println("Failed to write spans to " + file + ": " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        out.close();
+    }
+    
+    private void writeRequest(Writer line, List<LocalTracerProvider.FinishedSpan> batch) throws IOException {
+        Map<String, List<LocalTracerProvider.FinishedSpan>> byScope = new LinkedHashMap<>();
+        for (LocalTracerProvider.FinishedSpan span : batch) {
+            byScope.computeIfAbsent(span.scope(), k -> new ArrayList<>()).add(span);
+        }
+        
+        JsonWriter json = new JsonWriter(line);
+        json.beginObject().name("resourceSpans").beginArray().beginObject();
+        json.name("resource").beginObject();
+        writeAttributes(json, Attributes.of(AttributeKey.stringKey("service.name"), serviceName));
+        json.endObject();
+        json.name("scopeSpans").beginArray();
+        for (Map.Entry<String, List<LocalTracerProvider.FinishedSpan>> scope : byScope.entrySet()) {
+            json.beginObject();
+            json.name("scope").beginObject().name("name").value(scope.getKey()).endObject();
+            json.name("spans").beginArray();
+            for (LocalTracerProvider.FinishedSpan span : scope.getValue()) {
+                writeSpan(json, span);
+            }
+            json.endArray();
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject().endArray().endObject();
+        json.flush();
+    }
+    
+    private static void writeSpan(JsonWriter json, LocalTracerProvider.FinishedSpan span) throws IOException {
+        json.beginObject();
+        json.name("traceId").value(span.traceId());
+        json.name("spanId").value(span.spanId());
+        if (!span.parentSpanId().isEmpty()) {
+            json.name("parentSpanId").value(span.parentSpanId());
+        }
+        json.name("name").value(span.name());
+        // OTLP numbers span kinds from 1 (internal) in the same order as the SpanKind enum
+        json.name("kind").value(span.kind().ordinal() + 1);
+        json.name("startTimeUnixNano").value(Long.toString(span.startEpochNanos()));
+        json.name("endTimeUnixNano").value(Long.toString(span.endEpochNanos()));
+        writeAttributes(json, span.attributes());
+        if (!span.events().isEmpty()) {
+            json.name("events").beginArray();
+            for (LocalTracerProvider.Event event : span.events()) {
+                json.beginObject();
+                json.name("timeUnixNano").value(Long.toString(event.epochNanos()));
+                json.name("name").value(event.name());
+                writeAttributes(json, event.attributes());
+                json.endObject();
+            }
+            json.endArray();
+        }
+        json.name("status").beginObject();
+        json.name("code").value(statusCode(span.status()));
+        if (!span.statusMessage().isEmpty()) {
+            json.name("message").value(span.statusMessage());
+        }
+        json.endObject();
+        json.endObject();
+    }
+    
+    private static void writeAttributes(JsonWriter json, Attributes attributes) throws IOException {
+        json.name("attributes").beginArray();
+        for (Map.Entry<AttributeKey<?>, Object> attribute : attributes.asMap().entrySet()) {
+            json.beginObject();
+            json.name("key").value(attribute.getKey().getKey());
+            json.name("value").beginObject();
+            Object value = attribute.getValue();
+            switch (attribute.getKey().getType()) {
+                case BOOLEAN:
+                    json.name("boolValue").value((Boolean) value);
+                    break;
+                case LONG:
+                    json.name("intValue").value(value.toString());
+                    break;
+                case DOUBLE:
+                    double number = (Double) value;
+                    if (Double.isFinite(number)) {
+                        json.name("doubleValue").value(number);
+                    } else {
+                        // proto3 JSON spells the non-finite doubles as strings
+                        json.name("doubleValue").value(Double.isNaN(number) ? "NaN"
+                            : number > 0 ? "Infinity" : "-Infinity");
+                    }
+                    break;
+                default:
+                    json.name("stringValue").value(String.valueOf(value));
+                    break;
+            }
+            json.endObject();
+            json.endObject();
+        }
+        json.endArray();
+    }
+    
+    private static int statusCode(StatusCode status) {
+        switch (status) {
+            case OK:
+                return 1;
+            case ERROR:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+}
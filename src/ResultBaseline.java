@@ -0,0 +1,491 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Every result the page produced in a run, kept as a sorted file of fixed-width records and diffed between runs
+ * Records are keyed by the canonical profile (the result cache's metric conversion, four decimals) and hold the
+ * calories, the gram range of each carb band and the mean and max latency. At the end of a run they are sorted
+ * and written to reports/baseline-<timestamp>.bin (--baseline-run overrides it), then compared with the
+ * baseline of the mode and target (baselines/results-<mode>-<target>.bin, --result-baseline overrides it,
+ * "off" disables both) in one merge pass over the two memory-mapped files. The baseline is written when
+ * missing or on --update-baseline=true. Each file records its target, and runs against different targets
+ * are never compared. --mode=diff compares any two stored runs given as --from and --to.
+ */
+final class ResultBaseline {
+    
+    /**
+     * A profile whose numbers or latency moved, ranked by how far
+     */
+    private record Change(long hi, long lo, String detail, double magnitude) {
+    }
+    
+    private static final int MAGIC = 0x52424C31;
+    private static final int FORMAT = 2;
+    // Magic, format, record size, bands, count, creation time, then the target as zero-padded UTF-8
+    private static final int HEADER_BYTES = 96;
+    private static final int TARGET_BYTES = HEADER_BYTES - 32;
+    private static final int BANDS = CarbOracle.CARB_PERCENTAGES.length;
+    // Calories, min and max grams per band, mean and max latency in milliseconds
+    private static final int VALUES = 1 + 2 * BANDS + 2;
+    private static final int RECORD_BYTES = 16 + 4 * VALUES + 4;
+    // Mapped a gigabyte at a time, a single mapping cannot exceed 2 GB
+    private static final long WINDOW_RECORDS = (1L << 30) / RECORD_BYTES;
+    private static final double KEY_SCALE = 1e4;
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    // Observations in arrival order; 60 bytes each (two long keys and the float values), so a sweep of a
+    // million profiles stays near 60 MB
+    private static long[] keysHi = new long[1024];
+    private static long[] keysLo = new long[1024];
+    private static float[] values = new float[1024 * VALUES];
+    private static int observed;
+    
+    private static volatile boolean recording;
+    private static Path baselineFile;
+    private static Path runFile;
+    private static boolean update;
+    private static String target;
+    private static SuiteConfig settings;
+    
+    private ResultBaseline() {
+    }
+    
+    /**
+     * Start recording this run's results, unless --result-baseline=off
+     */
+    static void open(SuiteConfig config) {
+        target = config.targetName();
+        String location = config.get("result-baseline",
+            "baselines/results-" + config.mode() + "-" + target.replaceAll("[^A-Za-z0-9.-]", "_") + ".bin");
+        if (location.equals("off")) {
+            return;
+        }
+        baselineFile = Path.of(location);
+        runFile = Path.of(config.get("baseline-run",
+            "reports/baseline-" + LocalDateTime.now().format(FILE_STAMP) + ".bin"));
+        update = config.get("update-baseline", "false").equals("true");
+        settings = config;
+        recording = true;
+    }
+    
+    /**
+     * Remember one complete result the page produced for the profile and how long it took
+     * Validation cases, incomplete results and results served from the cache are not recorded.
+     */
+    static void record(CalculatorProfile profile, CalculationResult result, long nanos) {
+        if (!recording || result == null || !result.isComplete()) {
+            return;
+        }
+        double[] canonical = ResultCache.canonical(profile);
+        if (canonical == null) {
+            return;
+        }
+        long age = Math.round(canonical[0] * KEY_SCALE);
+        long height = Math.round(canonical[1] * KEY_SCALE);
+        long weight = Math.round(canonical[2] * KEY_SCALE);
+        long activity = Math.round(canonical[3] * KEY_SCALE);
+        if ((age | height | weight) < 0 || Math.max(age, Math.max(height, weight)) > 0xFFFFFFFFL
+                || activity < 0 || activity > 0x7FFFFFFFL) {
+            return;
+        }
+        
+        float[] row = new float[VALUES];
+        row[0] = (float) result.calories();
+        for (int b = 0; b < BANDS; b++) {
+            CalculationResult.CarbBand band = result.band(CarbOracle.CARB_PERCENTAGES[b]);
+            row[1 + 2 * b] = band == null ? Float.NaN : (float) band.minGrams();
+            row[2 + 2 * b] = band == null ? Float.NaN : (float) band.maxGrams();
+        }
+        row[VALUES - 2] = (float) (nanos / 1e6);
+        row[VALUES - 1] = row[VALUES - 2];
+        
+        synchronized (ResultBaseline.class) {
+            if (observed == keysHi.length) {
+                keysHi = Arrays.copyOf(keysHi, observed * 2);
+                keysLo = Arrays.copyOf(keysLo, observed * 2);
+                values = Arrays.copyOf(values, observed * 2 * VALUES);
+            }
+            keysHi[observed] = age << 32 | height;
+            keysLo[observed] = weight << 32 | activity << 1 | (profile.sex() == Sex.MALE ? 1 : 0);
+            System.arraycopy(row, 0, values, observed * VALUES, VALUES);
+            observed++;
+        }
+    }
+    
+    /**
+     * Write this run's store, diff it against the baseline and replace the baseline when asked to
+     */
+    static void close() {
+        if (!recording) {
+            return;
+        }
+        recording = false;
+        int count;
+        synchronized (ResultBaseline.class) {
+            count = observed;
+        }
+        if (count == 0) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            long profiles = write(runFile, count);
+            System.out.println("\nResult baseline: " + profiles + " profiles from " + count + " results written to "
+                + runFile + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            boolean exists = Files.exists(baselineFile);
+            if (exists) {
+                try {
+                    diff(baselineFile, runFile, settings);
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage() + ", not compared; --update-baseline=true replaces it");
+                }
+            }
+            if (!exists || update) {
+                if (baselineFile.getParent() != null) {
+                    Files.createDirectories(baselineFile.getParent());
+                }
+                Files.copy(runFile, baselineFile, StandardCopyOption.REPLACE_EXISTING);
+                System.out.println((exists ? "Result baseline updated: " : "Result baseline created: ") + baselineFile);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to store result baseline: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Sort the observations by key and write one record per profile, repeated profiles folded together
+     * The latest observation's numbers are kept and the latencies averaged.
+     */
+    private static long write(Path file, int count) throws IOException {
+        int[] order = sortedOrder(count);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long profiles = 0;
+        try (OutputStream stream = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(RECORD_BYTES);
+            out.writeInt(BANDS);
+            out.writeLong(0);
+            out.writeLong(System.currentTimeMillis());
+            byte[] name = target.getBytes(StandardCharsets.UTF_8);
+            out.write(Arrays.copyOf(name, TARGET_BYTES));
+            
+            int i = 0;
+            while (i < count) {
+                int first = order[i];
+                int last = first;
+                double latencySum = 0;
+                float latencyMax = 0;
+                int samples = 0;
+                while (i < count && keysHi[order[i]] == keysHi[first] && keysLo[order[i]] == keysLo[first]) {
+                    last = order[i];
+                    latencySum += values[last * VALUES + VALUES - 2];
+                    latencyMax = Math.max(latencyMax, values[last * VALUES + VALUES - 1]);
+                    samples++;
+                    i++;
+                }
+                out.writeLong(keysHi[first]);
+                out.writeLong(keysLo[first]);
+                for (int v = 0; v < VALUES - 2; v++) {
+                    out.writeFloat(values[last * VALUES + v]);
+                }
+                out.writeFloat((float) (latencySum / samples));
+                out.writeFloat(latencyMax);
+                out.writeInt(samples);
+                profiles++;
+            }
+        }
+        // The record count goes in last, so a file cut short by a crash never claims more records than it has
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, profiles), 16);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return profiles;
+    }
+    
+    /**
+     * Indices of the observations in key order, equal keys in arrival order (bottom-up merge sort)
+     */
+    private static int[] sortedOrder(int count) {
+        int[] from = new int[count];
+        int[] to = new int[count];
+        for (int i = 0; i < count; i++) {
+            from[i] = i;
+        }
+        for (int width = 1; width < count; width *= 2) {
+            for (int left = 0; left < count; left += 2 * width) {
+                int middle = Math.min(left + width, count);
+                int right = Math.min(left + 2 * width, count);
+                int i = left;
+                int j = middle;
+                int k = left;
+                while (i < middle && j < right) {
+                    to[k++] = compare(from[j], from[i]) < 0 ? from[j++] : from[i++];
+                }
+                while (i < middle) {
+                    to[k++] = from[i++];
+                }
+                while (j < right) {
+                    to[k++] = from[j++];
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        return from;
+    }
+    
+    private static int compare(int a, int b) {
+        int high = Long.compareUnsigned(keysHi[a], keysHi[b]);
+        return high != 0 ? high : Long.compareUnsigned(keysLo[a], keysLo[b]);
+    }
+    
+    /**
+     * A stored run opened read-only, mapped window by window as the diff walks through it
+     */
+    private static final class Store implements AutoCloseable {
+        
+        final Path file;
+        final FileChannel channel;
+        final long count;
+        final Instant createdAt;
+        final String target;
+        private MappedByteBuffer window;
+        private long windowStart = -1;
+        
+        Store(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                if (channel.size() < HEADER_BYTES) {
+                    throw new IOException(file + " is not a result baseline");
+                }
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT
+                        || header.getInt(8) != RECORD_BYTES || header.getInt(12) != BANDS) {
+                    throw new IOException(file + " is not a result baseline of this format");
+                }
+                count = header.getLong(16);
+                createdAt = Instant.ofEpochMilli(header.getLong(24));
+                byte[] name = new byte[TARGET_BYTES];
+                header.get(32, name);
+                int length = 0;
+                while (length < name.length && name[length] != 0) {
+                    length++;
+                }
+                target = new String(name, 0, length, StandardCharsets.UTF_8);
+                if (HEADER_BYTES + count * RECORD_BYTES > channel.size()) {
+                    throw new IOException(file + " is truncated, it should hold " + count + " records");
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        
+        /**
+         * Buffer holding record i, positioned at its first byte
+         */
+        ByteBuffer at(long i) throws IOException {
+            long start = i - i % WINDOW_RECORDS;
+            if (start != windowStart) {
+                long records = Math.min(WINDOW_RECORDS, count - start);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + start * RECORD_BYTES,
+                    records * RECORD_BYTES);
+                windowStart = start;
+            }
+            return window.position((int) ((i - start) * RECORD_BYTES));
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Walk both sorted stores once, reporting profiles whose numbers moved beyond --tolerance and those whose
+     * mean latency grew past --latency-regression times the old one by at least --latency-min-ms
+     * Throws IllegalArgumentException when the two runs measured different targets.
+     */
+    static void diff(Path from, Path to, SuiteConfig config) throws IOException {
+        double tolerance = config.tolerance();
+        double factor = config.getDouble("latency-regression", 1.5);
+        double minMs = config.getDouble("latency-min-ms", 50);
+        int limit = Math.max(0, config.getInt("diff-limit", 20));
+        
+        long start = System.nanoTime();
+        long compared = 0;
+        long added = 0;
+        long removed = 0;
+        long changed = 0;
+        long slower = 0;
+        double oldLatency = 0;
+        double newLatency = 0;
+        PriorityQueue<Change> changes = new PriorityQueue<>(Comparator.comparingDouble(Change::magnitude));
+        PriorityQueue<Change> regressions = new PriorityQueue<>(Comparator.comparingDouble(Change::magnitude));
+        float[] before = new float[VALUES];
+        float[] after = new float[VALUES];
+        
+        try (Store old = new Store(from); Store run = new Store(to)) {
+            if (!old.target.equals(run.target)) {
+                throw new IllegalArgumentException(from + " was measured against " + old.target + " and " + to
+                    + " against " + run.target);
+            }
+            long i = 0;
+            long j = 0;
+            while (i < old.count || j < run.count) {
+                int order;
+                if (i == old.count) {
+                    order = 1;
+                } else if (j == run.count) {
+                    order = -1;
+                } else {
+                    ByteBuffer a = old.at(i);
+                    ByteBuffer b = run.at(j);
+                    int pa = a.position();
+                    int pb = b.position();
+                    order = Long.compareUnsigned(a.getLong(pa), b.getLong(pb));
+                    if (order == 0) {
+                        order = Long.compareUnsigned(a.getLong(pa + 8), b.getLong(pb + 8));
+                    }
+                }
+                if (order < 0) {
+                    removed++;
+                    i++;
+                    continue;
+                }
+                if (order > 0) {
+                    added++;
+                    j++;
+                    continue;
+                }
+                
+                ByteBuffer a = old.at(i++);
+                ByteBuffer b = run.at(j++);
+                int pa = a.position();
+                int pb = b.position();
+                long hi = a.getLong(pa);
+                long lo = a.getLong(pa + 8);
+                for (int v = 0; v < VALUES; v++) {
+                    before[v] = a.getFloat(pa + 16 + 4 * v);
+                    after[v] = b.getFloat(pb + 16 + 4 * v);
+                }
+                compared++;
+                oldLatency += before[VALUES - 2];
+                newLatency += after[VALUES - 2];
+                
+                double worst = 0;
+                StringBuilder detail = new StringBuilder();
+                for (int v = 0; v < VALUES - 2; v++) {
+                    double delta = before[v] - after[v];
+                    boolean moved = Float.isNaN(before[v]) != Float.isNaN(after[v]) || Math.abs(delta) > tolerance;
+                    if (moved) {
+                        worst = Math.max(worst, Float.isNaN(before[v] + after[v]) ? Double.MAX_VALUE : Math.abs(delta));
+                        detail.append(detail.length() == 0 ? "" : ", ").append(label(v)).append(' ')
+                            .append(format(before[v])).append(" -> ").append(format(after[v]));
+                    }
+                }
+                if (worst > 0) {
+                    changed++;
+                    keep(changes, new Change(hi, lo, detail.toString(), worst), limit);
+                }
+                double oldMs = before[VALUES - 2];
+                double newMs = after[VALUES - 2];
+                if (newMs > oldMs * factor && newMs - oldMs >= minMs) {
+                    slower++;
+                    keep(regressions, new Change(hi, lo, String.format(Locale.ROOT, "mean %.1f ms -> %.1f ms (%.1fx)",
+                        oldMs, newMs, newMs / Math.max(oldMs, 1e-3)), newMs - oldMs), limit);
+                }
+            }
+            
+            System.out.println("\nResult Baseline Diff");
+            System.out.println("  target " + old.target + ", " + from + " (" + old.createdAt + ", " + old.count + " profiles) -> " + to + " ("
+                + run.createdAt + ", " + run.count + " profiles)");
+        }
+        System.out.println("  compared " + compared + " profiles in " + (System.nanoTime() - start) / 1_000_000
+            + " ms, " + added + " only in the new run, " + removed + " only in the old one");
+        if (compared > 0) {
+            System.out.println(String.format(Locale.ROOT, "  mean latency %.1f ms -> %.1f ms",
+                oldLatency / compared, newLatency / compared));
+        }
+        System.out.println("  values changed beyond " + tolerance + ": " + changed);
+        printWorst(changes);
+        System.out.println("  slower than " + factor + "x and +" + CarbOracle.formatNumber(minMs) + " ms: " + slower);
+        printWorst(regressions);
+        System.out.println("=======================================");
+    }
+    
+    private static void keep(PriorityQueue<Change> worst, Change change, int limit) {
+        worst.add(change);
+        if (worst.size() > limit) {
+            worst.poll();
+        }
+    }
+    
+    private static void printWorst(PriorityQueue<Change> worst) {
+        List<Change> ranked = new ArrayList<>(worst);
+        ranked.sort(Comparator.comparingDouble(Change::magnitude).reversed());
+        for (Change change : ranked) {
+            System.out.println("    " + describe(change.hi(), change.lo()) + ": " + change.detail());
+        }
+    }
+    
+    private static String label(int value) {
+        if (value == 0) {
+            return "calories";
+        }
+        int band = (value - 1) / 2;
+        return CarbOracle.CARB_PERCENTAGES[band] + "% " + (value % 2 == 1 ? "min" : "max");
+    }
+    
+    private static String format(float value) {
+        return Float.isNaN(value) ? "none" : CarbOracle.formatNumber(value);
+    }
+    
+    /**
+     * Readable canonical profile for a key, e.g. 30/male/175cm/75kg/1.55
+     */
+    static String describe(long hi, long lo) {
+        return CarbOracle.formatNumber((hi >>> 32) / KEY_SCALE) + "/" + ((lo & 1) == 1 ? "male" : "female") + "/"
+            + CarbOracle.formatNumber((hi & 0xFFFFFFFFL) / KEY_SCALE) + "cm/"
+            + CarbOracle.formatNumber((lo >>> 32) / KEY_SCALE) + "kg/"
+            + CarbOracle.formatNumber(((lo & 0xFFFFFFFFL) >>> 1) / KEY_SCALE);
+    }
+    
+    /**
+     * --mode=diff: compare two stored runs without a browser
+     */
+    static void runDiff(SuiteConfig config) throws IOException {
+        String from = config.get("from", null);
+        String to = config.get("to", null);
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("--mode=diff needs --from and --to, two result baseline files");
+        }
+        diff(Path.of(from), Path.of(to), config);
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Run-spanning memo of calculator results keyed by a canonical profile
+ * Inputs are parsed and US units converted to centimetres and kilograms, so the same person entered twice,
+ * or once per unit system, shares one entry. Only results the page itself produced (browser or HTTP) are
+ * stored. The store is a small binary file (.cache/result-cache.bin, --result-cache overrides it, "off"
+ * disables it) tagged with a fingerprint of the calculator form; a different fingerprint drops every entry.
+ */
+final class ResultCache {
+    
+    /**
+     * Where a stored result was observed
+     */
+    enum Source {
+        BROWSER,
+        HTTP
+    }
+    
+    private record Entry(CalculationResult result, Source source) {
+    }
+    
+    private static final int MAGIC = 0x43524331;
+    private static final Pattern FORM = Pattern.compile("(?is)<form\\b.*?</form>");
+    private static final Pattern INLINE_SCRIPT = Pattern.compile("(?is)<script>(.*?)</script>");
+    
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong STORES = new AtomicLong();
+    
+    private static volatile Path file;
+    private static volatile String pageVersion;
+    
+    private ResultCache() {
+    }
+    
+    /**
+     * Load the store for this run, unless --result-cache=off or the page version cannot be determined
+     */
+    static void open(SuiteConfig config) {
+        String location = config.get("result-cache", ".cache/result-cache.bin");
+        if (location.equals("off")) {
+            return;
+        }
+        try {
+            pageVersion = config.get("page-version", null);
+            if (pageVersion == null) {
+                pageVersion = fetchPageVersion(config);
+            }
+        } catch (IOException e) {
+            System.err.println("Result cache disabled, cannot fingerprint the page: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        
+        file = Path.of(location);
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                load(in);
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable result cache " + file + ": " + e.getMessage());
+                ENTRIES.clear();
+            }
+        }
+    }
+    
+    static boolean enabled() {
+        return file != null;
+    }
+    
+    /**
+     * Stored result for an equivalent profile, or null on a miss or when the cache is off
+     */
+    static CalculationResult lookup(CalculatorProfile profile) {
+        String key = enabled() ? key(profile) : null;
+        if (key == null) {
+            return null;
+        }
+        Entry entry = ENTRIES.get(key);
+        if (entry == null) {
+            MISSES.incrementAndGet();
+            return null;
+        }
+        HITS.incrementAndGet();
+        return entry.result();
+    }
+    
+    /**
+     * Remember a complete result the page produced for the profile
+     */
+    static void store(CalculatorProfile profile, CalculationResult result, Source source) {
+        String key = enabled() && result != null && result.isComplete() ? key(profile) : null;
+        if (key != null && ENTRIES.put(key, new Entry(result, source)) == null) {
+            STORES.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Canonical form of a profile: numbers reparsed, metric units, four decimals
+     * Returns null when a field is not a number, such inputs are validation cases and never cached.
+     */
+    static String key(CalculatorProfile profile) {
+        double[] canonical = canonical(profile);
+        if (canonical == null) {
+            return null;
+        }
+        return String.format(Locale.ROOT, "%.4f|%s|%.4f|%.4f|%.4f",
+            canonical[0], profile.sex() == Sex.MALE ? "m" : "f", canonical[1], canonical[2], canonical[3]);
+    }
+    
+    /**
+     * Age, height in centimetres, weight in kilograms and activity factor, or null when one is not a number
+     */
+    static double[] canonical(CalculatorProfile profile) {
+        double age = parse(profile.age());
+        double activity = parse(profile.activity());
+        double heightCm;
+        double weightKg;
+        if (profile.units() == UnitSystem.US) {
+            String inches = profile.heightInches();
+            heightCm = (parse(profile.height()) * 12 + (inches == null || inches.isBlank() ? 0 : parse(inches)))
+                * CarbOracle.CM_PER_INCH;
+            weightKg = parse(profile.weight()) * CarbOracle.KG_PER_POUND;
+        } else {
+            heightCm = parse(profile.height());
+            weightKg = parse(profile.weight());
+        }
+        if (Double.isNaN(age + activity + heightCm + weightKg)) {
+            return null;
+        }
+        return new double[] {age, heightCm, weightKg, activity};
+    }
+    
+    /**
+     * Write the store back and print what it saved this run
+     */
+    static void close() {
+        if (!enabled()) {
+            return;
+        }
+        long hits = HITS.get();
+        long misses = MISSES.get();
+        System.out.println("\nResult Cache Summary");
+        System.out.println(String.format("  page version %s, %d entries, hits=%d misses=%d new=%d",
+            pageVersion, ENTRIES.size(), hits, misses, STORES.get()));
+        if (STORES.get() == 0) {
+            return;
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            // Written next to the store and moved over it, so a crashed run never leaves half a file
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                save(new DataOutputStream(new BufferedOutputStream(out)));
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write result cache " + file + ": " + e.getMessage());
+        }
+    }
+    
+    private static void load(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a result cache file");
+        }
+        String version = in.readUTF();
+        int count = in.readInt();
+        if (!version.equals(pageVersion)) {
+            System.out.println("Page version changed (" + version + " -> " + pageVersion + "), "
+                + count + " cached results dropped");
+            return;
+        }
+        Source[] sources = Source.values();
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            Source source = sources[in.readUnsignedByte()];
+            double calories = in.readDouble();
+            int bandCount = in.readUnsignedByte();
+            List<CalculationResult.CarbBand> bands = new ArrayList<>(bandCount);
+            for (int b = 0; b < bandCount; b++) {
+                bands.add(new CalculationResult.CarbBand(in.readFloat(), in.readDouble(), in.readDouble()));
+            }
+            ENTRIES.put(key, new Entry(new CalculationResult(calories, List.copyOf(bands)), source));
+        }
+        if (in.read() != -1) {
+            throw new EOFException("trailing data after " + count + " entries");
+        }
+    }
+    
+    private static void save(DataOutputStream out) throws IOException {
+        Map<String, Entry> snapshot = Map.copyOf(ENTRIES);
+        out.writeInt(MAGIC);
+        out.writeUTF(pageVersion);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, Entry> entry : snapshot.entrySet()) {
+            CalculationResult result = entry.getValue().result();
+            out.writeUTF(entry.getKey());
+            out.writeByte(entry.getValue().source().ordinal());
+            out.writeDouble(result.calories());
+            out.writeByte(result.bands().size());
+            for (CalculationResult.CarbBand band : result.bands()) {
+                out.writeFloat((float) band.percent());
+                out.writeDouble(band.minGrams());
+                out.writeDouble(band.maxGrams());
+            }
+        }
+        out.flush();
+    }
+    
+    /**
+     * SHA-256 over the calculator form markup and the page's inline scripts, first 16 hex digits
+     * Ads and tracking on the rest of the page change between loads, the form and its scripts only when
+     * the calculator itself changes.
+     */
+    private static String fetchPageVersion(SuiteConfig config) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(config.resultTimeout())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.calculatorUrl()))
+            .timeout(config.resultTimeout())
+            .header("User-Agent", "CarbohydrateCalculatorAutomation")
+            .GET()
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + " from " + config.calculatorUrl());
+        }
+        
+        StringBuilder relevant = new StringBuilder();
+        Matcher form = FORM.matcher(response.body());
+        if (!form.find()) {
+            throw new IOException("no form on " + config.calculatorUrl());
+        }
+        relevant.append(form.group());
+        Matcher script = INLINE_SCRIPT.matcher(response.body());
+        while (script.find()) {
+            relevant.append(script.group(1));
+        }
+        
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(relevant.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private static double parse(String value) {
+        try {
+            return value == null ? Double.NaN : Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
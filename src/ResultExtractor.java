@@ -0,0 +1,201 @@
+import org.openqa.selenium.JavascriptExecutor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the result table inside the browser and parses it into a CalculationResult
+ * Only the cell texts of the result rows cross the wire, never the whole page source.
+ * parseHtml applies the same row parsing to a raw HTML response for the browserless HTTP path.
+ */
+final class ResultExtractor {
+    
+    static final String RESULT_TABLE_SELECTOR = "table.cinfoT";
+    static final String ERROR_SELECTOR = ".inputErrMsg, font[color=red]";
+    
+    private static final Pattern NUMBER = Pattern.compile("\\d[\\d,]*(?:\\.\\d+)?");
+    private static final Pattern PERCENT = Pattern.compile("^\\s*(\\d+(?:\\.\\d+)?)\\s*%");
+    
+    // Markup patterns for reading a result out of raw HTML when there is no browser
+    private static final Pattern ROW = Pattern.compile("(?is)<tr\\b[^>]*>(.*?)</tr>");
+    private static final Pattern CELL = Pattern.compile("(?is)<t[dh]\\b[^>]*>(.*?)</t[dh]>");
+    private static final Pattern ERROR = Pattern.compile("(?is)<(div|span)[^>]*class=\"[^\"]*\\binputErrMsg\\b[^\"]*\"[^>]*>(.*?)</\\1>"
+        + "|<font[^>]*color=\"?red\"?[^>]*>(.*?)</font>");
+    private static final Pattern TAG = Pattern.compile("<[^>]+>");
+    
+    private static final String ROWS_SCRIPT =
+        "var rows = [];" +
+        "var tables = document.querySelectorAll(arguments[0]);" +
+        "for (var t = 0; t < tables.length; t++) {" +
+        "  var trs = tables[t].rows;" +
+        "  for (var r = 0; r < trs.length; r++) {" +
+        "    var cells = [];" +
+        "    for (var c = 0; c < trs[r].cells.length; c++) { cells.push(trs[r].cells[c].textContent.trim()); }" +
+        "    rows.push(cells);" +
+        "  }" +
+        "}" +
+        "return rows;";
+    
+    private static final String ERROR_SCRIPT =
+        "var text = '';" +
+        "var nodes = document.querySelectorAll(arguments[0]);" +
+        "for (var i = 0; i < nodes.length; i++) { text += nodes[i].textContent.trim() + ' '; }" +
+        "return text.trim();";
+    
+    private final JavascriptExecutor js;
+    
+    ResultExtractor(JavascriptExecutor js) {
+        this.js = js;
+    }
+    
+    /**
+     * Result currently shown on the page, or null when there is no result table
+     */
+    @SuppressWarnings("unchecked")
+    CalculationResult extract() {
+        long start = System.nanoTime();
+        List<List<String>> rows = (List<List<String>>) js.executeScript(ROWS_SCRIPT, RESULT_TABLE_SELECTOR);
+        StepTimings.record("read.result", start);
+        return parseRows(rows);
+    }
+    
+    /**
+     * Text of any validation messages the page is showing, empty when there are none
+     */
+    String validationMessage() {
+        long start = System.nanoTime();
+        String message = (String) js.executeScript(ERROR_SCRIPT, ERROR_SELECTOR);
+        StepTimings.record("read.validation", start);
+        return message;
+    }
+    
+    /**
+     * Turn result table rows into a CalculationResult
+     * A row whose label mentions calories gives the baseline, a row labelled "NN%" gives one band
+     * and its gram range is the first and last number in the remaining cells.
+     */
+    static CalculationResult parseRows(List<List<String>> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return null;
+        }
+        
+        double calories = 0;
+        List<CalculationResult.CarbBand> bands = new ArrayList<>();
+        
+        for (List<String> row : rows) {
+            if (row.size() < 2) {
+                continue;
+            }
+            String label = row.get(0);
+            List<Double> numbers = numbersIn(row.subList(1, row.size()));
+            if (numbers.isEmpty()) {
+                continue;
+            }
+            
+            Matcher percent = PERCENT.matcher(label);
+            if (percent.find()) {
+                bands.add(new CalculationResult.CarbBand(Double.parseDouble(percent.group(1)),
+                    numbers.get(0), numbers.get(numbers.size() - 1)));
+            } else if (calories == 0 && label.toLowerCase().contains("calorie")) {
+                calories = numbers.get(0);
+            }
+        }
+        
+        if (calories == 0 && bands.isEmpty()) {
+            return null;
+        }
+        return new CalculationResult(calories, List.copyOf(bands));
+    }
+    
+    /**
+     * Same parse as extract() but over a raw HTML response, for the browserless HTTP path
+     */
+    static CalculationResult parseHtml(String html) {
+        String body = withoutScriptsAndStyles(html);
+        List<List<String>> rows = new ArrayList<>();
+        int marker = body.indexOf("cinfoT");
+        while (marker >= 0) {
+            int start = body.lastIndexOf("<table", marker);
+            int end = body.indexOf("</table>", marker);
+            if (start < 0 || end < 0) {
+                break;
+            }
+            Matcher row = ROW.matcher(body.substring(start, end));
+            while (row.find()) {
+                List<String> cells = new ArrayList<>();
+                Matcher cell = CELL.matcher(row.group(1));
+                while (cell.find()) {
+                    cells.add(textOf(cell.group(1)));
+                }
+                rows.add(cells);
+            }
+            marker = body.indexOf("cinfoT", end);
+        }
+        return parseRows(rows);
+    }
+    
+    /**
+     * Validation messages in a raw HTML response, empty when there are none
+     */
+    static String validationMessageInHtml(String html) {
+        String body = withoutScriptsAndStyles(html);
+        StringBuilder text = new StringBuilder();
+        if (!body.contains("inputErrMsg") && !body.toLowerCase().contains("<font")) {
+            return "";
+        }
+        Matcher error = ERROR.matcher(body);
+        while (error.find()) {
+            String message = textOf(error.group(2) != null ? error.group(2) : error.group(3));
+            if (!message.isEmpty()) {
+                text.append(text.length() > 0 ? " " : "").append(message);
+            }
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Drop script and style blocks so markup inside them is never mistaken for page content
+     * A plain indexOf scan, several times faster than a DOTALL regex over the whole page
+     */
+    private static String withoutScriptsAndStyles(String html) {
+        String lower = html.toLowerCase();
+        StringBuilder body = new StringBuilder(html.length());
+        int from = 0;
+        while (true) {
+            int script = lower.indexOf("<script", from);
+            int style = lower.indexOf("<style", from);
+            int start = script < 0 ? style : style < 0 ? script : Math.min(script, style);
+            if (start < 0) {
+                break;
+            }
+            String closing = start == script ? "</script>" : "</style>";
+            int end = lower.indexOf(closing, start);
+            body.append(html, from, start);
+            if (end < 0) {
+                return body.toString();
+            }
+            from = end + closing.length();
+        }
+        body.append(html, from, html.length());
+        return body.toString();
+    }
+    
+    private static String textOf(String markup) {
+        return TAG.matcher(markup).replaceAll("")
+            .replace("&nbsp;", " ").replace("&lt;", "<").replace("&gt;", ">")
+            .replace("&quot;", "\"").replace("&amp;", "&")
+            .trim();
+    }
+    
+    private static List<Double> numbersIn(List<String> cells) {
+        List<Double> numbers = new ArrayList<>();
+        for (String cell : cells) {
+            Matcher matcher = NUMBER.matcher(cell);
+            while (matcher.find()) {
+                numbers.add(Double.parseDouble(matcher.group().replace(",", "")));
+            }
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,338 @@
+import com.google.gson.stream.JsonWriter;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Streams test and step outcomes to NDJSON while the run is going, and writes JUnit XML at the end
+ * Workers only append to a lock-free queue; one background thread turns events into lines and flushes
+ * whenever the queue runs dry, so a killed JVM still leaves every finished step on disk. The JUnit file is
+ * written by finish(), which also runs from a shutdown hook when the run is interrupted.
+ */
+final class ResultReporter {
+    
+    /**
+     * One scenario step, or one profile in differential mode
+     */
+    record StepResult(String testId, int step, String action, CalculatorProfile profile, String expectation,
+                      String source, CalculationResult result, String validationMessage, String failure,
+                      long nanos, Instant finishedAt, String traceId) {
+        
+        String outcome() {
+            return failure == null ? "passed" : "failed";
+        }
+    }
+    
+    /**
+     * One finished test case, error is set when it stopped on an exception rather than a failed check
+     */
+    record TestResult(String testId, String title, int steps, List<String> failures, String error,
+                      long nanos, Instant finishedAt, String traceId) {
+        
+        String outcome() {
+            return error != null ? "error" : failures.isEmpty() ? "passed" : "failed";
+        }
+    }
+    
+    /**
+     * One shard's share of a sharded run, read back by --mode=merge
+     */
+    record ShardResult(String shard, String assignment, int total, int assigned, int ran, int stolen) {
+    }
+    
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    
+    private static final Queue<Object> EVENTS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger PASSED = new AtomicInteger();
+    private static final AtomicInteger FAILED = new AtomicInteger();
+    private static final AtomicBoolean FINISHED = new AtomicBoolean();
+    
+    private static volatile boolean running;
+    private static volatile Thread writer;
+    private static volatile Path resultsFile;
+    private static volatile Path junitFile;
+    private static volatile String suiteName;
+    private static volatile Instant startedAt;
+    
+    // Appended by the writer thread, read once by finish()
+    private static final List<TestResult> TESTS = new CopyOnWriteArrayList<>();
+    
+    private ResultReporter() {
+    }
+    
+    /**
+     * Open the NDJSON stream (--results-file) and start the writer, --results-file=off keeps reporting on the console only
+     */
+    static void start(SuiteConfig config) {
+        String stamp = LocalDateTime.now().format(FILE_STAMP);
+        String shard = config.get("shard", null);
+        if (shard != null) {
+            stamp += "-shard-" + shard.replace("/", "-of-");
+        }
+        String results = config.get("results-file", "reports/results-" + stamp + ".ndjson");
+        if (results.equals("off")) {
+            return;
+        }
+        resultsFile = Path.of(results);
+        junitFile = Path.of(config.get("junit-file", "reports/junit-" + stamp + ".xml"));
+        suiteName = "carbohydrate-calculator." + config.mode();
+        startedAt = Instant.now();
+        
+        Writer out;
+        try {
+            if (resultsFile.getParent() != null) {
+                Files.createDirectories(resultsFile.getParent());
+            }
+            out = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Result reporting disabled, cannot write " + resultsFile + ": " + e.getMessage());
+            resultsFile = null;
+            return;
+        }
+        
+        running = true;
+        writer = new Thread(() -> drain(out, config), "result-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(ResultReporter::finish, "result-reporter-shutdown"));
+    }
+    
+    static void step(StepResult step) {
+        if (running) {
+            EVENTS.offer(step);
+        }
+    }
+    
+    static void test(TestResult test) {
+        (test.outcome().equals("passed") ? PASSED : FAILED).incrementAndGet();
+        if (running) {
+            EVENTS.offer(test);
+        }
+    }
+    
+    static void shard(ShardResult shard) {
+        if (running) {
+            EVENTS.offer(shard);
+        }
+    }
+    
+    static int passed() {
+        return PASSED.get();
+    }
+    
+    static int failed() {
+        return FAILED.get();
+    }
+    
+    /**
+     * Trace id of the current span, empty outside a traced operation, so NDJSON lines can be joined with the trace
+     */
+    static String currentTraceId() {
+        SpanContext context = Span.current().getSpanContext();
+        return context.isValid() ? context.getTraceId() : "";
+    }
+    
+    /**
+     * Stop the writer once the queue is empty and write the JUnit XML, safe to call more than once
+     */
+    static void finish() {
+        Thread current = writer;
+        if (current == null || !FINISHED.compareAndSet(false, true)) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(current);
+        try {
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        try {
+            writeJUnit(junitFile, suiteName, startedAt, Duration.between(startedAt, Instant.now()).toNanos() / 1e9,
+                List.copyOf(TESTS));
+            System.out.println("Results: " + resultsFile + ", JUnit report: " + junitFile);
+        } catch (IOException | XMLStreamException e) {
+            System.err.println("Failed to write JUnit report " + junitFile + ": " + e.getMessage());
+        }
+    }
+    
+    private static void drain(Writer out, SuiteConfig config) {
+        try (Writer closing = out) {
+            JsonWriter json = new JsonWriter(closing);
+            json.setLenient(true);
+            json.beginObject();
+            json.name("event").value("run");
+            json.name("suite").value(suiteName);
+            json.name("target").value(config.calculatorUrl());
+            json.name("workers").value(config.workers());
+            if (config.get("shard", null) != null) {
+                json.name("shard").value(config.get("shard", null));
+            }
+            json.name("startedAt").value(startedAt.toString());
+            json.endObject();
+            closing.write('\n');
+            
+            while (true) {
+                Object event = EVENTS.poll();
+                if (event == null) {
+                    // Flush on every idle moment, so a kill loses at most the events of the last few milliseconds
+                    closing.flush();
+                    if (!running) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                if (event instanceof StepResult step) {
+                    writeStep(json, step);
+                } else if (event instanceof ShardResult shard) {
+                    writeShard(json, shard);
+                } else {
+                    TestResult test = (TestResult) event;
+                    TESTS.add(test);
+                    writeTest(json, test);
+                }
+                closing.write('\n');
+            }
+        } catch (IOException e) {
+            System.err.println("Result stream stopped, cannot write " + resultsFile + ": " + e.getMessage());
+            running = false;
+        }
+    }
+    
+    private static void writeStep(JsonWriter json, StepResult step) throws IOException {
+        json.beginObject();
+        json.name("event").value("step");
+        json.name("test").value(step.testId());
+        json.name("step").value(step.step());
+        json.name("action").value(step.action());
+        json.name("profile").value(String.valueOf(step.profile()));
+        json.name("expect").value(step.expectation());
+        json.name("source").value(step.source());
+        json.name("outcome").value(step.outcome());
+        CalculationResult result = step.result();
+        if (result != null && result.isComplete()) {
+            json.name("calories").value(result.calories());
+            json.name("bands").beginObject();
+            for (CalculationResult.CarbBand band : result.bands()) {
+                json.name(CarbOracle.formatNumber(band.percent())).beginArray()
+                    .value(band.minGrams()).value(band.maxGrams()).endArray();
+            }
+            json.endObject();
+        }
+        if (step.validationMessage() != null && !step.validationMessage().isEmpty()) {
+            json.name("validationMessage").value(step.validationMessage());
+        }
+        if (step.failure() != null) {
+            json.name("failure").value(step.failure());
+        }
+        json.name("durationMs").value(step.nanos() / 1e6);
+        json.name("finishedAt").value(step.finishedAt().toString());
+        json.name("traceId").value(step.traceId());
+        json.endObject();
+    }
+    
+    private static void writeShard(JsonWriter json, ShardResult shard) throws IOException {
+        json.beginObject();
+        json.name("event").value("shard");
+        json.name("shard").value(shard.shard());
+        json.name("assignment").value(shard.assignment());
+        json.name("total").value(shard.total());
+        json.name("assigned").value(shard.assigned());
+        json.name("ran").value(shard.ran());
+        json.name("stolen").value(shard.stolen());
+        json.endObject();
+    }
+    
+    private static void writeTest(JsonWriter json, TestResult test) throws IOException {
+        json.beginObject();
+        json.name("event").value("test");
+        json.name("test").value(test.testId());
+        json.name("title").value(test.title());
+        json.name("outcome").value(test.outcome());
+        json.name("steps").value(test.steps());
+        json.name("failures").beginArray();
+        for (String failure : test.failures()) {
+            json.value(failure);
+        }
+        json.endArray();
+        if (test.error() != null) {
+            json.name("error").value(test.error());
+        }
+        json.name("durationMs").value(test.nanos() / 1e6);
+        json.name("finishedAt").value(test.finishedAt().toString());
+        json.name("traceId").value(test.traceId());
+        json.endObject();
+    }
+    
+    /**
+     * One testsuite with a testcase per finished test, the layout CI servers read from Surefire
+     */
+    static void writeJUnit(Path junitFile, String suiteName, Instant startedAt, double seconds, List<TestResult> tests)
+            throws IOException, XMLStreamException {
+        long failures = tests.stream().filter(t -> t.outcome().equals("failed")).count();
+        long errors = tests.stream().filter(t -> t.outcome().equals("error")).count();
+        
+        if (junitFile.getParent() != null) {
+            Files.createDirectories(junitFile.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(junitFile, StandardCharsets.UTF_8)) {
+            XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("testsuite");
+            xml.writeAttribute("name", suiteName);
+            xml.writeAttribute("tests", String.valueOf(tests.size()));
+            xml.writeAttribute("failures", String.valueOf(failures));
+            xml.writeAttribute("errors", String.valueOf(errors));
+            xml.writeAttribute("skipped", "0");
+            xml.writeAttribute("time", String.format(Locale.ROOT, "%.3f", seconds));
+            xml.writeAttribute("timestamp", startedAt.toString());
+            xml.writeCharacters("\n");
+            for (TestResult test : tests) {
+                xml.writeCharacters("  ");
+                xml.writeStartElement("testcase");
+                xml.writeAttribute("classname", suiteName);
+                xml.writeAttribute("name", test.title().isEmpty() ? test.testId() : test.testId() + ": " + test.title());
+                xml.writeAttribute("time", String.format(Locale.ROOT, "%.3f", test.nanos() / 1e9));
+                if (test.error() != null) {
+                    xml.writeStartElement("error");
+                    xml.writeAttribute("message", test.error());
+                    xml.writeEndElement();
+                } else if (!test.failures().isEmpty()) {
+                    xml.writeStartElement("failure");
+                    xml.writeAttribute("message", test.failures().size() + " step(s) failed");
+                    xml.writeCharacters(String.join("\n", test.failures()));
+                    xml.writeEndElement();
+                }
+                xml.writeEndElement();
+                xml.writeCharacters("\n");
+            }
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import java.time.Duration;
+
+/**
+ * Event-driven waits for the calculator result block
+ * Returns as soon as the result or validation region shows up or changes instead of sleeping a fixed time.
+ * Same-document changes are picked up by a MutationObserver, form submissions that load a new document
+ * are picked up by a fingerprint poll with exponential backoff.
+ */
+final class ResultWaiter {
+    
+    // Regions that change when the calculator produces a result or rejects an input
+    static final String RESULT_SELECTOR = "h2.h2result, table.cinfoT, .inputErrMsg, font[color=red]";
+    
+    private static final long MIN_BACKOFF_MS = 25;
+    private static final long MAX_BACKOFF_MS = 400;
+    
+    // JavaScript function expression computing the fingerprint for a selector, shared with batch scripts
+    static final String FINGERPRINT_FUNCTION =
+        "function(selector) {" +
+        "  if (!window.__calcDocToken) { window.__calcDocToken = Date.now() + '-' + Math.random(); }" +
+        "  var text = '';" +
+        "  var nodes = document.querySelectorAll(selector);" +
+        "  for (var i = 0; i < nodes.length; i++) { text += nodes[i].textContent; }" +
+        "  var hash = 0;" +
+        "  for (var j = 0; j < text.length; j++) { hash = ((hash << 5) - hash + text.charCodeAt(j)) | 0; }" +
+        "  return window.__calcDocToken + '|' + document.readyState + '|' + text.length + ':' + hash;" +
+        "}";
+    
+    private static final String FINGERPRINT_SCRIPT = "return (" + FINGERPRINT_FUNCTION + ")(arguments[0]);";
+    
+    private static final String MUTATION_SCRIPT =
+        "var done = arguments[arguments.length - 1];" +
+        "var timer = null;" +
+        "var observer = new MutationObserver(function() { clearTimeout(timer); observer.disconnect(); done(true); });" +
+        "timer = setTimeout(function() { observer.disconnect(); done(false); }, arguments[0]);" +
+        "observer.observe(document.body, {childList: true, subtree: true, characterData: true, attributes: true});";
+    
+    private final JavascriptExecutor js;
+    private final Duration defaultTimeout;
+    // With an eager or none page-load strategy a parsed (interactive) document already counts as ready
+    private final boolean acceptInteractive;
+    
+    // Told about every fingerprint so cached element handles are dropped when the document changes
+    private final ElementCache elements;
+    
+    // Set while a step is retried, so the retry waits the full configured timeout instead of the adaptive one
+    private boolean fullTimeouts;
+    
+    ResultWaiter(JavascriptExecutor js, Duration defaultTimeout, boolean acceptInteractive, ElementCache elements) {
+        this.js = js;
+        this.defaultTimeout = defaultTimeout;
+        this.acceptInteractive = acceptInteractive;
+        this.elements = elements;
+    }
+    
+    /**
+     * Snapshot of the current document and result region, taken right before an action
+     */
+    String fingerprint() {
+        String fingerprint = (String) js.executeScript(FINGERPRINT_SCRIPT, RESULT_SELECTOR);
+        elements.observe(fingerprint);
+        return fingerprint;
+    }
+    
+    void setFullTimeouts(boolean fullTimeouts) {
+        this.fullTimeouts = fullTimeouts;
+    }
+    
+    /**
+     * Timeout for a wait recorded under the given step name, adaptive unless a retry asked for the full one
+     */
+    Duration timeoutFor(String step, Duration configured) {
+        return fullTimeouts ? configured : AdaptiveTimeouts.timeout(step, configured);
+    }
+    
+    /**
+     * Block until the result region differs from the given fingerprint on a fully loaded document
+     * Throws TimeoutException when nothing changes within the step's timeout
+     */
+    void awaitChange(String before, String step) {
+        Duration timeout = timeoutFor("wait." + step, defaultTimeout);
+        if (!awaitChange(before, step, timeout)) {
+            throw new TimeoutException(step + ": result did not appear within " + timeout.toMillis() + " ms");
+        }
+    }
+    
+    /**
+     * Wait up to the given timeout for the result region to change
+     * Returns false instead of throwing so callers can treat "nothing happened" as an outcome. Waits that
+     * time out are recorded apart from the others, so they do not inflate the latencies timeouts derive from.
+     */
+    boolean awaitChange(String before, String step, Duration timeout) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long backoff = MIN_BACKOFF_MS;
+        boolean changed = false;
+        
+        while (true) {
+            String current = currentFingerprint();
+            if (current != null && !current.equals(before) && isComplete(current)) {
+                changed = true;
+                break;
+            }
+            
+            long remainingMs = (deadline - System.nanoTime()) / 1_000_000;
+            if (remainingMs <= 0) {
+                break;
+            }
+            
+            long slice = Math.min(backoff, remainingMs);
+            if (current != null && isComplete(current)) {
+                // Same document is idle, let the browser tell us when the DOM moves
+                awaitMutation(slice);
+            } else {
+                // Document is loading or navigating away, poll again shortly
+                sleep(slice);
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+        
+        StepTimings.record(changed ? "wait." + step : "wait." + step + ".timeout", start);
+        return changed;
+    }
+    
+    private String currentFingerprint() {
+        try {
+            return fingerprint();
+        } catch (WebDriverException e) {
+            // Script ran while the old document was unloading
+            return null;
+        }
+    }
+    
+    private void awaitMutation(long timeoutMs) {
+        try {
+            js.executeAsyncScript(MUTATION_SCRIPT, timeoutMs);
+        } catch (WebDriverException e) {
+            // Document unloaded while observing, the next fingerprint picks up the new page
+        }
+    }
+    
+    private boolean isComplete(String fingerprint) {
+        return fingerprint.contains("|complete|") || acceptInteractive && fingerprint.contains("|interactive|");
+    }
+    
+    private static void sleep(long milliseconds) {
+        try {
+            Thread.sleep(milliseconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for result", e);
+        }
+    }
+}
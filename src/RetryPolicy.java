@@ -0,0 +1,150 @@
+import io.opentelemetry.api.trace.Span;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Classifies step failures and retries the transient ones within a per-run budget
+ * Timeouts, stale elements and navigation errors are retried up to --retries times per step, after a
+ * full-jitter exponential backoff (--retry-base-ms, capped at --retry-max-ms), while the run still has
+ * some of its --retry-budget left. Assertion mismatches and anything unrecognised fail straight away.
+ */
+final class RetryPolicy {
+    
+    enum FailureKind {
+        TIMEOUT(true),
+        STALE_ELEMENT(true),
+        NAVIGATION(true),
+        ASSERTION(false),
+        OTHER(false);
+        
+        final boolean transientFailure;
+        
+        FailureKind(boolean transientFailure) {
+            this.transientFailure = transientFailure;
+        }
+        
+        String label() {
+            return name().toLowerCase().replace('_', '-');
+        }
+        
+        static FailureKind of(Throwable failure) {
+            if (failure instanceof TimeoutException) {
+                return TIMEOUT;
+            }
+            if (failure instanceof StaleElementReferenceException) {
+                return STALE_ELEMENT;
+            }
+            if (failure instanceof UnreachableBrowserException
+                || failure instanceof WebDriverException && String.valueOf(failure.getMessage()).contains("net::ERR_")) {
+                return NAVIGATION;
+            }
+            return OTHER;
+        }
+    }
+    
+    /**
+     * One try of a retried operation, attempt counts from 1
+     */
+    interface Attempt<T> {
+        T run(int attempt);
+    }
+    
+    private static final Map<FailureKind, LongAdder> RETRIES = new EnumMap<>(FailureKind.class);
+    private static final Map<FailureKind, LongAdder> FAILURES = new EnumMap<>(FailureKind.class);
+    private static final AtomicInteger BUDGET = new AtomicInteger(10);
+    
+    static {
+        for (FailureKind kind : FailureKind.values()) {
+            RETRIES.put(kind, new LongAdder());
+            FAILURES.put(kind, new LongAdder());
+        }
+    }
+    
+    private static volatile int retries = 2;
+    private static volatile long baseMillis = 200;
+    private static volatile long maxMillis = 2000;
+    private static volatile int budgetSize = 10;
+    
+    private RetryPolicy() {
+    }
+    
+    static void configure(SuiteConfig config) {
+        retries = Math.max(0, config.getInt("retries", 2));
+        baseMillis = Math.max(1, config.getLong("retry-base-ms", 200));
+        maxMillis = Math.max(baseMillis, config.getLong("retry-max-ms", 2000));
+        budgetSize = Math.max(0, config.getInt("retry-budget", 10));
+        BUDGET.set(budgetSize);
+    }
+    
+    /**
+     * Run the operation, retrying transient failures; the last failure is rethrown unchanged
+     */
+    static <T> T call(String operation, Attempt<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.run(attempt);
+            } catch (RuntimeException e) {
+                FailureKind kind = FailureKind.of(e);
+                if (!kind.transientFailure || attempt > retries || !takeFromBudget()) {
+                    throw e;
+                }
+                RETRIES.get(kind).increment();
+                long backoff = ThreadLocalRandom.current().nextLong(
+                    Math.min(maxMillis, baseMillis << Math.min(attempt - 1, 20)) + 1);
+                Span.current().addEvent("retry " + kind.label() + " after " + backoff + " ms");
+                System.out.println("  retrying " + operation + " after " + kind.label() + " in " + backoff
+                    + " ms (attempt " + (attempt + 1) + ", " + BUDGET.get() + " retries left in the run)");
+                sleep(backoff);
+            }
+        }
+    }
+    
+    /**
+     * Count a final failure towards the per-kind summary and tag the current span with its kind
+     */
+    static void recordFailure(FailureKind kind) {
+        FAILURES.get(kind).increment();
+        Span.current().setAttribute("test.failure_kind", kind.label());
+    }
+    
+    static void printSummary() {
+        long retried = RETRIES.values().stream().mapToLong(LongAdder::sum).sum();
+        long failed = FAILURES.values().stream().mapToLong(LongAdder::sum).sum();
+        if (retried == 0 && failed == 0) {
+            return;
+        }
+        System.out.println("\nRetries: " + retried + " of a budget of " + budgetSize + byKind(RETRIES));
+        System.out.println("Failures by kind: " + failed + byKind(FAILURES));
+    }
+    
+    private static String byKind(Map<FailureKind, LongAdder> counts) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<FailureKind, LongAdder> entry : counts.entrySet()) {
+            if (entry.getValue().sum() > 0) {
+                text.append(text.length() == 0 ? " (" : ", ").append(entry.getKey().label()).append(' ')
+                    .append(entry.getValue().sum());
+            }
+        }
+        return text.length() == 0 ? "" : text.append(')').toString();
+    }
+    
+    private static boolean takeFromBudget() {
+        return BUDGET.getAndUpdate(left -> Math.max(0, left - 1)) > 0;
+    }
+    
+    private static void sleep(long milliseconds) {
+        try {
+            Thread.sleep(milliseconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Consecutive steps sharing a scenario id, e.g. the two profiles TC003 compares
+ */
+record Scenario(String id, String title, List<ScenarioStep> steps) {
+    
+    /**
+     * Scenario data files for a comma-separated list of files and directories
+     * Directories contribute their .csv and .json files in name order
+     */
+    static List<Path> files(String locations) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String location : locations.split(",")) {
+            Path path = Path.of(location.trim());
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> listing = Files.list(path)) {
+                    files.addAll(listing
+                        .filter(p -> p.toString().endsWith(".csv") || p.toString().endsWith(".json"))
+                        .sorted()
+                        .collect(Collectors.toList()));
+                }
+            } else if (Files.isRegularFile(path)) {
+                files.add(path);
+            } else {
+                throw new IllegalArgumentException("Scenario file or directory not found: " + path);
+            }
+        }
+        return files;
+    }
+    
+    /**
+     * Streams scenarios out of the given files one at a time, grouping consecutive steps by scenario id
+     */
+    static final class Reader implements Iterator<Scenario>, AutoCloseable {
+        
+        private final Iterator<Path> files;
+        private ScenarioSource source;
+        private ScenarioStep pending;
+        
+        Reader(List<Path> files) {
+            this.files = files.iterator();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (pending == null) {
+                pending = nextStep();
+            }
+            return pending != null;
+        }
+        
+        @Override
+        public Scenario next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ScenarioStep first = pending;
+            pending = null;
+            
+            List<ScenarioStep> steps = new ArrayList<>();
+            steps.add(first);
+            ScenarioStep step;
+            while ((step = nextStep()) != null && step.scenarioId().equals(first.scenarioId())) {
+                steps.add(step);
+            }
+            pending = step;
+            return new Scenario(first.scenarioId(), first.title(), List.copyOf(steps));
+        }
+        
+        private ScenarioStep nextStep() {
+            try {
+                while (source == null || !source.hasNext()) {
+                    if (source != null) {
+                        source.close();
+                        source = null;
+                    }
+                    if (!files.hasNext()) {
+                        return null;
+                    }
+                    source = ScenarioSource.open(files.next());
+                }
+                return source.next();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (source != null) {
+                source.close();
+            }
+        }
+    }
+}
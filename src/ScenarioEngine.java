@@ -0,0 +1,216 @@
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+import org.openqa.selenium.TimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs one data-driven scenario on a browser session: fill, calculate, verify for every step
+ * Comparison expectations look up the result of an earlier step in the same scenario. Batch calculate
+ * steps that only check numbers are answered from the ResultCache when an equivalent profile was seen before.
+ * Transient browser failures are retried on a freshly loaded page under the RetryPolicy; failures are
+ * reported with their kind so a slow page can be told apart from a wrong result.
+ */
+final class ScenarioEngine {
+    
+    // What the page showed after one attempt at a step
+    private record Observed(CalculationResult result, String message) {
+    }
+    
+    private static final Duration VALIDATION_TIMEOUT = Duration.ofMillis(800);
+    
+    private final BrowserSession session;
+    private final FormFiller form;
+    private final ResultExtractor extractor;
+    private final ResultWaiter results;
+    private final double tolerance;
+    private final String calculatorUrl;
+    
+    ScenarioEngine(BrowserSession session, SuiteConfig config) {
+        this.session = session;
+        this.form = new FormFiller(session);
+        this.extractor = new ResultExtractor(session.js());
+        this.results = session.results();
+        this.tolerance = config.tolerance();
+        this.calculatorUrl = config.calculatorUrl();
+    }
+    
+    /**
+     * Run every step in order, returns one message per failed step (empty when the scenario passed)
+     */
+    List<String> run(Scenario scenario) {
+        Map<Integer, CalculationResult> resultsByStep = new HashMap<>();
+        List<String> failures = new ArrayList<>();
+        
+        for (ScenarioStep step : scenario.steps()) {
+            long startNanos = System.nanoTime();
+            Span span = Tracing.tracer().spanBuilder("step " + step.step())
+                .setAllAttributes(Tracing.profileAttributes(step.profile()))
+                .setAttribute("test.step", step.step())
+                .setAttribute("test.action", step.action().name().toLowerCase())
+                .setAttribute("test.fill_mode", step.mode().name().toLowerCase())
+                .setAttribute("test.expect", step.expectation().toString())
+                .startSpan();
+            try (Scope ignored = span.makeCurrent()) {
+                boolean cacheable = isCacheable(step);
+                CalculationResult result = cacheable ? ResultCache.lookup(step.profile()) : null;
+                String message = "";
+                String source = result != null ? "cache" : "browser";
+                span.setAttribute("test.result_source", source);
+                if (result == null) {
+                    Observed observed = observe(step);
+                    result = observed.result();
+                    message = observed.message();
+                    ResultBaseline.record(step.profile(), result, System.nanoTime() - startNanos);
+                }
+                resultsByStep.put(step.step(), result);
+                
+                String failure = verify(step, result, message, resultsByStep);
+                if (cacheable && failure == null && message.isEmpty()) {
+                    ResultCache.store(step.profile(), result, ResultCache.Source.BROWSER);
+                }
+                span.setAttribute("test.result", String.valueOf(result));
+                if (!message.isEmpty()) {
+                    span.setAttribute("test.validation_message", message);
+                }
+                if (failure != null) {
+                    RetryPolicy.recordFailure(RetryPolicy.FailureKind.ASSERTION);
+                    if (source.equals("browser")) {
+                        FailureArtifacts.capture(session, scenario.id(), step.step(), "assertion");
+                    }
+                    failures.add("step " + step.step() + " (" + step.profile() + "): " + failure);
+                    span.setStatus(StatusCode.ERROR, failure);
+                }
+                report(scenario, step, source, result, message, failure, startNanos);
+            } catch (RuntimeException e) {
+                RetryPolicy.FailureKind kind = RetryPolicy.FailureKind.of(e);
+                RetryPolicy.recordFailure(kind);
+                FailureArtifacts.capture(session, scenario.id(), step.step(), kind.label());
+                report(scenario, step, "browser", null, "", kind.label() + ": " + e.getMessage(), startNanos);
+                span.recordException(e);
+                span.setStatus(StatusCode.ERROR, String.valueOf(e.getMessage()));
+                throw e;
+            } finally {
+                span.end();
+            }
+        }
+        return failures;
+    }
+    
+    private static void report(Scenario scenario, ScenarioStep step, String source, CalculationResult result,
+                               String message, String failure, long startNanos) {
+        ResultReporter.step(new ResultReporter.StepResult(scenario.id(), step.step(),
+            step.action().name().toLowerCase(), step.profile(), step.expectation().toString(), source, result,
+            message, failure, System.nanoTime() - startNanos, Instant.now(), ResultReporter.currentTraceId()));
+    }
+    
+    /**
+     * Steps that only need the numbers: batch calculations checked for a result or against another step
+     * Validation, keystroke and rejection steps test the page's behaviour and always run in the browser.
+     */
+    private static boolean isCacheable(ScenarioStep step) {
+        ScenarioStep.Check check = step.expectation().check();
+        return step.action() == ScenarioStep.Action.CALCULATE && step.mode() == FormFiller.Mode.BATCH
+            && check != ScenarioStep.Check.REJECTED && check != ScenarioStep.Check.ANY;
+    }
+    
+    /**
+     * Run the step in the browser, retrying transient failures on a reloaded page with full timeouts
+     */
+    private Observed observe(ScenarioStep step) {
+        try {
+            return RetryPolicy.call("step " + step.step(), attempt -> {
+                if (attempt > 1) {
+                    session.setPageLoaded(false);
+                }
+                // Steps expecting a rejection read a timeout as the page refusing the input, so a slow
+                // accept must not be cut short by an adaptive timeout
+                results.setFullTimeouts(attempt > 1 || step.expectation().check() == ScenarioStep.Check.REJECTED);
+                session.navigateToCalculatorSmart(calculatorUrl);
+                CalculationResult result = execute(step);
+                return new Observed(result, extractor.validationMessage());
+            });
+        } finally {
+            results.setFullTimeouts(false);
+        }
+    }
+    
+    private CalculationResult execute(ScenarioStep step) {
+        if (step.action() == ScenarioStep.Action.VALIDATE) {
+            String before = results.fingerprint();
+            form.fillByKeystroke(step.profile());
+            results.awaitChange(before, "validation", VALIDATION_TIMEOUT);
+        } else {
+            try {
+                form.fillAndCalculate(step.profile(), step.mode());
+            } catch (TimeoutException e) {
+                // A rejected input can leave the page exactly as it was, which is the outcome being tested
+                if (step.expectation().check() != ScenarioStep.Check.REJECTED) {
+                    throw e;
+                }
+            }
+        }
+        return extractor.extract();
+    }
+    
+    /**
+     * Check one step's outcome, returns a failure description or null when it meets its expectation
+     */
+    private String verify(ScenarioStep step, CalculationResult result, String message,
+                          Map<Integer, CalculationResult> resultsByStep) {
+        ScenarioStep.Expectation expectation = step.expectation();
+        switch (expectation.check()) {
+            case ANY:
+                return null;
+            case REJECTED:
+                if (step.action() == ScenarioStep.Action.VALIDATE) {
+                    // A validate step never submits, so there is never a result; only the message shows a rejection
+                    return !message.isEmpty() ? null : "expected a validation message, the page showed none";
+                }
+                return !isComplete(result) || !message.isEmpty()
+                    ? null : "expected the input to be rejected, got " + result;
+            default:
+                break;
+        }
+        
+        if (!isComplete(result)) {
+            return "expected a result, got " + (message.isEmpty() ? "no result table" : "'" + message + "'");
+        }
+        if (expectation.check() == ScenarioStep.Check.RESULT) {
+            return null;
+        }
+        
+        CalculationResult reference = resultsByStep.get(expectation.referenceStep());
+        if (!isComplete(reference)) {
+            return "step " + expectation.referenceStep() + " has no result to compare with";
+        }
+        
+        boolean met;
+        switch (expectation.check()) {
+            case HIGHER_THAN:
+                met = result.calories() > reference.calories() + tolerance && !result.matches(reference, tolerance);
+                break;
+            case LOWER_THAN:
+                met = result.calories() < reference.calories() - tolerance && !result.matches(reference, tolerance);
+                break;
+            case DIFFERS:
+                met = !result.matches(reference, tolerance);
+                break;
+            case MATCHES:
+                met = result.matches(reference, tolerance);
+                break;
+            default:
+                throw new IllegalStateException("Unhandled expectation " + expectation);
+        }
+        return met ? null : "expected " + expectation + " (" + reference + "), got " + result;
+    }
+    
+    private static boolean isComplete(CalculationResult result) {
+        return result != null && result.isComplete();
+    }
+}
@@ -0,0 +1,213 @@
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily reads scenario steps from a CSV or JSON file, one record at a time
+ * CSV files have a header row naming the columns, JSON files hold an array of objects with the same keys.
+ * Nothing beyond the current record is kept in memory, so very large files stream through.
+ */
+abstract class ScenarioSource implements Iterator<ScenarioStep>, AutoCloseable {
+    
+    protected final Path file;
+    private ScenarioStep next;
+    private boolean finished;
+    
+    protected ScenarioSource(Path file) {
+        this.file = file;
+    }
+    
+    static ScenarioSource open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".csv")) {
+            return new Csv(file);
+        }
+        if (name.endsWith(".json")) {
+            return new Json(file);
+        }
+        throw new IllegalArgumentException("Unsupported scenario file (expected .csv or .json): " + file);
+    }
+    
+    /**
+     * Next record as named fields, or null at end of file
+     */
+    protected abstract Map<String, String> readRecord() throws IOException;
+    
+    protected abstract String position();
+    
+    @Override
+    public abstract void close() throws IOException;
+    
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                Map<String, String> fields = readRecord();
+                if (fields == null) {
+                    finished = true;
+                } else {
+                    next = ScenarioStep.fromFields(fields, file + " " + position());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + file, e);
+            }
+        }
+        return next != null;
+    }
+    
+    @Override
+    public ScenarioStep next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ScenarioStep step = next;
+        next = null;
+        return step;
+    }
+    
+    private static final class Csv extends ScenarioSource {
+        
+        private final BufferedReader reader;
+        private final List<String> header;
+        private int line = 1;
+        
+        Csv(Path file) throws IOException {
+            super(file);
+            reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+            String first;
+            try {
+                first = reader.readLine();
+            } catch (IOException e) {
+                reader.close();
+                throw e;
+            }
+            if (first == null) {
+                reader.close();
+                throw new IllegalArgumentException("Empty scenario file: " + file);
+            }
+            header = splitLine(first);
+        }
+        
+        @Override
+        protected Map<String, String> readRecord() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && (text.isBlank() || text.startsWith("#")));
+            if (text == null) {
+                return null;
+            }
+            
+            List<String> cells = splitLine(text);
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.size() && i < cells.size(); i++) {
+                if (!cells.get(i).isEmpty()) {
+                    fields.put(header.get(i).trim().toLowerCase(), cells.get(i));
+                }
+            }
+            return fields;
+        }
+        
+        @Override
+        protected String position() {
+            return "line " + line;
+        }
+        
+        /**
+         * Split one CSV line, honoring double quotes and "" escapes
+         */
+        static List<String> splitLine(String line) {
+            List<String> cells = new ArrayList<>();
+            StringBuilder cell = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        cell.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        cell.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    cells.add(cell.toString().trim());
+                    cell.setLength(0);
+                } else {
+                    cell.append(c);
+                }
+            }
+            cells.add(cell.toString().trim());
+            return cells;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+    
+    private static final class Json extends ScenarioSource {
+        
+        private final JsonReader reader;
+        private int index = 0;
+        
+        Json(Path file) throws IOException {
+            super(file);
+            reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+            try {
+                reader.beginArray();
+            } catch (IOException | RuntimeException e) {
+                reader.close();
+                throw e;
+            }
+        }
+        
+        @Override
+        protected Map<String, String> readRecord() throws IOException {
+            if (!reader.hasNext()) {
+                reader.endArray();
+                return null;
+            }
+            index++;
+            Map<String, String> fields = new HashMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName().toLowerCase();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                } else {
+                    // Numbers are read back as their literal text so "63.5" stays "63.5"
+                    fields.put(name, reader.nextString());
+                }
+            }
+            reader.endObject();
+            return fields;
+        }
+        
+        @Override
+        protected String position() {
+            return "record " + index;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.Map;
+
+/**
+ * One row of a scenario data file: a profile to submit and the outcome to expect
+ * Rows with the same scenario id that follow each other form one scenario, run in order on one session.
+ */
+record ScenarioStep(String scenarioId, int step, String title, FormFiller.Mode mode, Action action,
+                    CalculatorProfile profile, Expectation expectation) {
+    
+    enum Action {
+        // Submit the form and read the result table
+        CALCULATE,
+        // Type the fields and tab out without submitting, to trigger the page's field validation
+        VALIDATE
+    }
+    
+    enum Check {
+        RESULT,
+        REJECTED,
+        ANY,
+        HIGHER_THAN,
+        LOWER_THAN,
+        DIFFERS,
+        MATCHES
+    }
+    
+    /**
+     * What a step must produce, comparisons name an earlier step of the same scenario
+     */
+    record Expectation(Check check, int referenceStep) {
+        
+        static Expectation parse(String text) {
+            String value = text == null || text.isBlank() ? "result" : text.trim().toLowerCase();
+            int colon = value.indexOf(':');
+            String name = colon < 0 ? value : value.substring(0, colon);
+            Check check;
+            try {
+                check = Check.valueOf(name.replace('-', '_').toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown expectation '" + text + "'");
+            }
+            boolean comparison = check == Check.HIGHER_THAN || check == Check.LOWER_THAN
+                || check == Check.DIFFERS || check == Check.MATCHES;
+            if (comparison != (colon >= 0)) {
+                throw new IllegalArgumentException(comparison
+                    ? "Expectation '" + text + "' needs a step to compare with, e.g. " + name + ":1"
+                    : "Expectation '" + text + "' does not take a step");
+            }
+            return new Expectation(check, comparison ? Integer.parseInt(value.substring(colon + 1).trim()) : 0);
+        }
+        
+        @Override
+        public String toString() {
+            String name = check.name().toLowerCase().replace('_', '-');
+            return referenceStep > 0 ? name + ":" + referenceStep : name;
+        }
+    }
+    
+    /**
+     * Build a step from named columns, shared by the CSV and JSON readers
+     * origin names the file and record for error messages
+     */
+    static ScenarioStep fromFields(Map<String, String> fields, String origin) {
+        try {
+            String scenarioId = required(fields, "scenario");
+            int step = Integer.parseInt(required(fields, "step"));
+            
+            UnitSystem units = "us".equalsIgnoreCase(fields.getOrDefault("units", "metric")) ? UnitSystem.US : UnitSystem.METRIC;
+            Sex sex = "female".equalsIgnoreCase(required(fields, "sex")) ? Sex.FEMALE : Sex.MALE;
+            CalculatorProfile profile = new CalculatorProfile(
+                fields.getOrDefault("age", ""), sex, units,
+                fields.getOrDefault("height", ""), fields.get("inches"),
+                fields.getOrDefault("weight", ""), required(fields, "activity"));
+            
+            FormFiller.Mode mode = "keystroke".equalsIgnoreCase(fields.getOrDefault("mode", "batch"))
+                ? FormFiller.Mode.KEYSTROKE : FormFiller.Mode.BATCH;
+            Action action = "validate".equalsIgnoreCase(fields.getOrDefault("action", "calculate"))
+                ? Action.VALIDATE : Action.CALCULATE;
+            
+            return new ScenarioStep(scenarioId, step, fields.getOrDefault("title", ""), mode, action,
+                profile, Expectation.parse(fields.get("expect")));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(origin + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("missing '" + name + "'");
+        }
+        return value.trim();
+    }
+}
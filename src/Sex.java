@@ -0,0 +1,17 @@
+/**
+ * Sex radio buttons on the calculator form
+ */
+enum Sex {
+    MALE("csex1"),
+    FEMALE("csex2");
+    
+    private final String radioId;
+    
+    Sex(String radioId) {
+        this.radioId = radioId;
+    }
+    
+    String radioId() {
+        return radioId;
+    }
+}
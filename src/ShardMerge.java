@@ -0,0 +1,290 @@
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Merge mode: combine the NDJSON result files of a sharded run into one summary and one JUnit report
+ * Checks that every shard used the same assignment and that no test ran twice or not at all, prints the
+ * global pass rate and test and step latency percentiles, and folds the test durations into the shard
+ * history so the next sharded run can balance by duration.
+ */
+final class ShardMerge {
+    
+    /**
+     * What one result file contributed
+     */
+    private static final class Shard {
+        final Path file;
+        String label = "-";
+        String assignment;
+        int total;
+        int ran = -1;
+        int stolen;
+        int tests;
+        int passed;
+        Instant firstStarted;
+        Instant lastFinished;
+        
+        Shard(Path file) {
+            this.file = file;
+        }
+    }
+    
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // Weight of the newest run when folding durations into the history
+    private static final double HISTORY_WEIGHT = 0.5;
+    
+    private final SuiteConfig config;
+    private final List<Shard> shards = new ArrayList<>();
+    private final Map<String, ResultReporter.TestResult> tests = new LinkedHashMap<>();
+    private final Map<String, Integer> runs = new HashMap<>();
+    private final LatencyHistogram testLatency = new LatencyHistogram();
+    private final LatencyHistogram stepLatency = new LatencyHistogram();
+    private String suiteName = "carbohydrate-calculator";
+    
+    ShardMerge(SuiteConfig config) {
+        this.config = config;
+    }
+    
+    void run() throws IOException {
+        String inputs = config.get("inputs", null);
+        if (inputs == null) {
+            throw new IllegalArgumentException("--mode=merge needs --inputs, the shard result files or their directory");
+        }
+        for (Path file : inputFiles(inputs)) {
+            read(file);
+        }
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("No result files in " + inputs);
+        }
+        
+        printSummary();
+        Path junit = Path.of(config.get("junit-file",
+            "reports/junit-merged-" + LocalDateTime.now().format(FILE_STAMP) + ".xml"));
+        Instant started = shards.stream().map(s -> s.firstStarted).filter(i -> i != null).min(Instant::compareTo)
+            .orElse(Instant.now());
+        Instant finished = shards.stream().map(s -> s.lastFinished).filter(i -> i != null).max(Instant::compareTo)
+            .orElse(started);
+        try {
+            ResultReporter.writeJUnit(junit, suiteName, started, (finished.toEpochMilli() - started.toEpochMilli()) / 1e3,
+                List.copyOf(tests.values()));
+            System.out.println("Merged JUnit report: " + junit);
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot write " + junit, e);
+        }
+        Path history = Path.of(config.get("shard-history", ".cache/test-durations.json"));
+        writeHistory(history);
+        System.out.println("Shard history updated: " + history);
+    }
+    
+    /**
+     * Comma-separated files and directories, directories contribute their .ndjson files in name order
+     */
+    private static List<Path> inputFiles(String inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String location : inputs.split(",")) {
+            Path path = Path.of(location.trim());
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> listing = Files.list(path)) {
+                    files.addAll(listing.filter(p -> p.toString().endsWith(".ndjson")).sorted()
+                        .collect(Collectors.toList()));
+                }
+            } else if (Files.isRegularFile(path)) {
+                files.add(path);
+            } else {
+                throw new IllegalArgumentException("Result file or directory not found: " + path);
+            }
+        }
+        return files;
+    }
+    
+    private void read(Path file) throws IOException {
+        Shard shard = new Shard(file);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonObject event;
+                try {
+                    event = JsonParser.parseString(line).getAsJsonObject();
+                } catch (RuntimeException e) {
+                    // The last line of a killed shard can be cut off, everything before it still counts
+                    System.err.println("Skipping unreadable line in " + file);
+                    continue;
+                }
+                switch (event.get("event").getAsString()) {
+                    case "run":
+                        suiteName = event.get("suite").getAsString();
+                        shard.firstStarted = Instant.parse(event.get("startedAt").getAsString());
+                        if (event.has("shard")) {
+                            shard.label = event.get("shard").getAsString();
+                        }
+                        break;
+                    case "shard":
+                        shard.label = event.get("shard").getAsString();
+                        shard.assignment = event.get("assignment").getAsString();
+                        shard.total = event.get("total").getAsInt();
+                        shard.ran = event.get("ran").getAsInt();
+                        shard.stolen = event.get("stolen").getAsInt();
+                        break;
+                    case "step":
+                        stepLatency.record((long) (event.get("durationMs").getAsDouble() * 1e6));
+                        break;
+                    case "test":
+                        ResultReporter.TestResult test = toTest(event);
+                        tests.put(test.testId(), test);
+                        runs.merge(test.testId(), 1, Integer::sum);
+                        testLatency.record(test.nanos());
+                        shard.tests++;
+                        shard.passed += test.outcome().equals("passed") ? 1 : 0;
+                        if (shard.lastFinished == null || test.finishedAt().isAfter(shard.lastFinished)) {
+                            shard.lastFinished = test.finishedAt();
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        shards.add(shard);
+    }
+    
+    private static ResultReporter.TestResult toTest(JsonObject event) {
+        List<String> failures = new ArrayList<>();
+        JsonArray failed = event.getAsJsonArray("failures");
+        if (failed != null) {
+            for (JsonElement failure : failed) {
+                failures.add(failure.getAsString());
+            }
+        }
+        return new ResultReporter.TestResult(event.get("test").getAsString(),
+            event.has("title") ? event.get("title").getAsString() : "",
+            event.has("steps") ? event.get("steps").getAsInt() : 0, failures,
+            event.has("error") ? event.get("error").getAsString() : null,
+            (long) (event.get("durationMs").getAsDouble() * 1e6),
+            Instant.parse(event.get("finishedAt").getAsString()),
+            event.has("traceId") ? event.get("traceId").getAsString() : "");
+    }
+    
+    private void printSummary() {
+        System.out.println("\nMerged Shard Summary");
+        System.out.println(String.format("  %-8s %-24s %7s %7s %7s %9s  %s", "shard", "assignment", "tests", "passed",
+            "stolen", "wall s", "file"));
+        for (Shard shard : shards) {
+            double wall = shard.firstStarted == null || shard.lastFinished == null ? 0
+                : (shard.lastFinished.toEpochMilli() - shard.firstStarted.toEpochMilli()) / 1e3;
+            System.out.println(String.format("  %-8s %-24s %7d %7d %7d %9.1f  %s", shard.label,
+                shard.assignment == null ? "-" : shard.assignment, shard.tests, shard.passed, shard.stolen, wall,
+                shard.file));
+        }
+        
+        TreeSet<String> assignments = shards.stream().map(s -> s.assignment).filter(a -> a != null)
+            .collect(Collectors.toCollection(TreeSet::new));
+        if (assignments.size() > 1) {
+            System.out.println("WARNING: shards used different assignments " + assignments
+                + ", tests may have run twice or not at all");
+        }
+        for (Shard shard : shards) {
+            if (shard.ran == 0 || shard.tests == 0) {
+                System.out.println("WARNING: shard " + shard.label + " ran no tests (" + shard.file
+                    + "), check that it started and that --run-id was new for this run");
+            }
+        }
+        int expected = shards.stream().mapToInt(s -> s.total).max().orElse(0);
+        List<String> duplicates = runs.entrySet().stream().filter(e -> e.getValue() > 1).map(Map.Entry::getKey)
+            .sorted().collect(Collectors.toList());
+        long passed = tests.values().stream().filter(t -> t.outcome().equals("passed")).count();
+        
+        System.out.println("Tests: " + tests.size() + (expected > 0 ? " of " + expected + " planned" : "")
+            + ", passed " + passed + ", failed " + (tests.size() - passed));
+        if (!tests.isEmpty()) {
+            System.out.println(String.format("Pass rate: %.1f%%", passed * 100.0 / tests.size()));
+        }
+        if (expected > tests.size()) {
+            System.out.println("Missing: " + (expected - tests.size()) + " planned test(s) have no result");
+        }
+        if (!duplicates.isEmpty()) {
+            System.out.println("Ran more than once (last result kept): " + duplicates);
+        }
+        printPercentiles("Test duration", testLatency);
+        printPercentiles("Step duration", stepLatency);
+        for (ResultReporter.TestResult test : tests.values()) {
+            if (!test.outcome().equals("passed")) {
+                System.out.println("  " + test.testId() + " " + test.outcome().toUpperCase() + ": "
+                    + (test.error() != null ? test.error() : String.join("; ", test.failures())));
+            }
+        }
+        System.out.println("=======================================");
+    }
+    
+    private static void printPercentiles(String label, LatencyHistogram histogram) {
+        if (histogram.count() == 0) {
+            return;
+        }
+        System.out.println(String.format("%s: p50=%.1f ms p90=%.1f ms p99=%.1f ms max=%.1f ms (%d)", label,
+            histogram.percentile(50) / 1e6, histogram.percentile(90) / 1e6, histogram.percentile(99) / 1e6,
+            histogram.maxNanos() / 1e6, histogram.count()));
+    }
+    
+    /**
+     * Fold this run's test durations into the history, keeping entries for tests that did not run
+     */
+    private void writeHistory(Path file) throws IOException {
+        Map<String, Double> durations = new TreeMap<>();
+        if (Files.exists(file)) {
+            try {
+                JsonObject old = JsonParser.parseString(Files.readString(file, StandardCharsets.UTF_8))
+                    .getAsJsonObject().getAsJsonObject("tests");
+                for (String id : old.keySet()) {
+                    durations.put(id, old.get(id).getAsDouble());
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Replacing unreadable shard history " + file + ": " + e.getMessage());
+            }
+        }
+        for (ResultReporter.TestResult test : tests.values()) {
+            double ms = test.nanos() / 1e6;
+            durations.merge(test.testId(), ms, (old, run) -> old * (1 - HISTORY_WEIGHT) + run * HISTORY_WEIGHT);
+        }
+        
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(out)) {
+            json.setIndent("  ");
+            json.beginObject();
+            json.name("updatedAt").value(Instant.now().toString());
+            json.name("unit").value("ms");
+            json.name("tests").beginObject();
+            for (Map.Entry<String, Double> entry : durations.entrySet()) {
+                json.name(entry.getKey()).value(Math.round(entry.getValue() * 10) / 10.0);
+            }
+            json.endObject();
+            json.endObject();
+        }
+    }
+}
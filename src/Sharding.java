@@ -0,0 +1,341 @@
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Splits a run across processes: --shard=i/N runs the i-th of N disjoint parts of the tests
+ * With a duration history (.cache/test-durations.json, written by --mode=merge, --shard-history overrides it)
+ * tests are assigned longest first to the least loaded shard; tests without history count as the average.
+ * Without one, a test goes to the shard its id's SHA-256 points at. Every shard computes the same assignment
+ * from the same inputs, and its fingerprint is written to the result file so the merge can check that.
+ * --shard-steal=<dir> names a directory all shards share: a test is claimed by creating a file there
+ * before it runs, and a shard that has finished its own tests goes on to claim the ones nobody took yet.
+ * Claims live under --run-id, which every shard of one run must share and no other run may reuse.
+ */
+final class Sharding {
+    
+    /**
+     * Produces a fresh iterator over all tests for each pass, closed afterwards when it is AutoCloseable
+     */
+    interface Source<T> {
+        Iterator<T> open() throws IOException;
+    }
+    
+    private final int index;
+    private final int count;
+    private final Path historyFile;
+    private final Path stealDirectory;
+    private Map<String, Integer> planned = Map.of();
+    private String assignment = "none";
+    private int total;
+    private final AtomicInteger owned = new AtomicInteger();
+    private final AtomicInteger ran = new AtomicInteger();
+    private final AtomicInteger stolen = new AtomicInteger();
+    private final AtomicInteger lost = new AtomicInteger();
+    private Path claims;
+    
+    private Sharding(int index, int count, Path historyFile, Path stealDirectory) {
+        this.index = index;
+        this.count = count;
+        this.historyFile = historyFile;
+        this.stealDirectory = stealDirectory;
+    }
+    
+    /**
+     * Shard of this process from --shard=i/N (1-based), a single shard owning everything when unset
+     */
+    static Sharding from(SuiteConfig config) {
+        String shard = config.get("shard", null);
+        Path history = Path.of(config.get("shard-history", ".cache/test-durations.json"));
+        String steal = config.get("shard-steal", null);
+        if (shard == null) {
+            return new Sharding(1, 1, history, null);
+        }
+        String[] parts = shard.split("/");
+        int index;
+        int count;
+        try {
+            index = Integer.parseInt(parts[0].trim());
+            count = Integer.parseInt(parts[1].trim());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("--shard expects i/N, got '" + shard + "'");
+        }
+        if (parts.length != 2 || count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("--shard expects i/N with 1 <= i <= N, got '" + shard + "'");
+        }
+        if (steal == null) {
+            return new Sharding(index, count, history, null);
+        }
+        // Claims from an earlier run would make every test look taken, so each run gets its own directory
+        String runId = config.get("run-id", null);
+        if (runId == null || !runId.matches("[A-Za-z0-9._-]+") || runId.matches("\\.+")) {
+            throw new IllegalArgumentException("--shard-steal needs --run-id, the same value for every shard of "
+                + "one run and a new one per run (letters, digits, '.', '_', '-'), e.g. the CI build number");
+        }
+        return new Sharding(index, count, history, Path.of(steal).resolve(runId));
+    }
+    
+    boolean enabled() {
+        return count > 1;
+    }
+    
+    String label() {
+        return index + "/" + count;
+    }
+    
+    /**
+     * Assign every test id to a shard, the same way in every process given the same ids and history
+     */
+    void plan(List<String> ids) {
+        total = ids.size();
+        if (!enabled()) {
+            owned.set(total);
+            return;
+        }
+        Map<String, Double> history = readHistory();
+        Map<String, Integer> shards = new HashMap<>();
+        if (history.values().stream().noneMatch(ms -> ms > 0)) {
+            for (String id : ids) {
+                shards.put(id, hashShard(id));
+            }
+            assignment = "hash";
+        } else {
+            // Longest processing time first: each test goes to the shard with the least work so far
+            double average = history.values().stream().mapToDouble(Double::doubleValue).average().orElse(1);
+            List<String> ordered = new ArrayList<>(ids);
+            ordered.sort(Comparator.comparingDouble((String id) -> history.getOrDefault(id, average)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+            double[] load = new double[count];
+            for (String id : ordered) {
+                int lightest = 0;
+                for (int s = 1; s < count; s++) {
+                    if (load[s] < load[lightest]) {
+                        lightest = s;
+                    }
+                }
+                load[lightest] += history.getOrDefault(id, average);
+                shards.put(id, lightest);
+            }
+            assignment = "duration";
+        }
+        planned = shards;
+        
+        StringBuilder plan = new StringBuilder(count + ":");
+        for (String id : ids) {
+            plan.append(id).append('=').append(shards.get(id)).append(';');
+        }
+        assignment += "-" + sha256(plan.toString()).substring(0, 12);
+        owned.set((int) ids.stream().filter(this::owns).count());
+        
+        if (stealDirectory != null) {
+            claims = stealDirectory.resolve(assignment);
+            try {
+                Files.createDirectories(claims);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create the work-stealing directory " + claims, e);
+            }
+        }
+    }
+    
+    boolean owns(String id) {
+        if (!enabled()) {
+            return true;
+        }
+        Integer shard = planned.get(id);
+        return (shard != null ? shard : hashShard(id)) == index - 1;
+    }
+    
+    boolean stealing() {
+        return claims != null;
+    }
+    
+    /**
+     * Positions in ids this shard should try, its own first and with work stealing everyone else's after
+     * For runs that submit all tests up front; each test still has to be claimed when it starts.
+     */
+    List<Integer> order(List<String> ids) {
+        List<Integer> order = new ArrayList<>();
+        List<Integer> others = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            (owns(ids.get(i)) ? order : others).add(i);
+        }
+        if (stealing()) {
+            order.addAll(others);
+        }
+        return order;
+    }
+    
+    /**
+     * Take a test for this shard right before running it; false when another shard already claimed it
+     * Without work stealing every owned test is simply taken.
+     */
+    boolean claim(String id) {
+        boolean own = owns(id);
+        if (claims == null) {
+            if (own) {
+                ran.incrementAndGet();
+            }
+            return own;
+        }
+        try {
+            Files.writeString(claims.resolve(sha256(id).substring(0, 24)), label(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException e) {
+            if (own) {
+                lost.incrementAndGet();
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot claim " + id + " in " + claims, e);
+        }
+        ran.incrementAndGet();
+        if (!own) {
+            stolen.incrementAndGet();
+        }
+        return true;
+    }
+    
+    /**
+     * This shard's tests in source order, followed with work stealing by whatever other shards left
+     * Tests are claimed as they are taken from the iterator, so a test is run by exactly one shard.
+     */
+    <T> Selection<T> select(Source<T> source, Function<T, String> id) {
+        return new Selection<>(source, id);
+    }
+    
+    final class Selection<T> implements Iterator<T>, AutoCloseable {
+        
+        private final Source<T> source;
+        private final Function<T, String> id;
+        private Iterator<T> pass;
+        private boolean ownPass = true;
+        private T pending;
+        
+        private Selection(Source<T> source, Function<T, String> id) {
+            this.source = source;
+            this.id = id;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            try {
+                while (pending == null) {
+                    if (pass == null) {
+                        pass = source.open();
+                    }
+                    if (!pass.hasNext()) {
+                        closePass();
+                        if (!ownPass || !stealing()) {
+                            return false;
+                        }
+                        ownPass = false;
+                        continue;
+                    }
+                    T item = pass.next();
+                    String key = id.apply(item);
+                    if (owns(key) == ownPass && claim(key)) {
+                        pending = item;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T item = pending;
+            pending = null;
+            return item;
+        }
+        
+        private void closePass() throws IOException {
+            if (pass instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+            }
+            pass = null;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            closePass();
+        }
+    }
+    
+    /**
+     * Print this shard's share and record it in the result file for the merge
+     */
+    void report() {
+        if (!enabled()) {
+            return;
+        }
+        System.out.println("Shard " + label() + " (" + assignment + "): ran " + ran.get() + " of " + total
+            + " tests, " + owned.get() + " assigned" + (stealing()
+                ? ", " + stolen.get() + " taken from other shards, " + lost.get() + " taken by them" : ""));
+        ResultReporter.shard(new ResultReporter.ShardResult(label(), assignment, total, owned.get(), ran.get(),
+            stolen.get()));
+    }
+    
+    /**
+     * Mean duration in milliseconds per test id from earlier merged runs, empty when there is no history
+     */
+    private Map<String, Double> readHistory() {
+        Map<String, Double> history = new HashMap<>();
+        if (!Files.exists(historyFile)) {
+            return history;
+        }
+        try {
+            JsonObject tests = JsonParser.parseString(Files.readString(historyFile, StandardCharsets.UTF_8))
+                .getAsJsonObject().getAsJsonObject("tests");
+            for (String id : tests.keySet()) {
+                history.put(id, tests.get(id).getAsDouble());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable shard history " + historyFile + ": " + e.getMessage());
+            history.clear();
+        }
+        return history;
+    }
+    
+    private int hashShard(String id) {
+        long hash = Long.parseUnsignedLong(sha256(id).substring(0, 15), 16);
+        return (int) (hash % count);
+    }
+    
+    static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import com.google.gson.stream.JsonWriter;
+import io.opentelemetry.api.common.Attributes;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-step latency histograms for the whole run
+ * Every browser and HTTP primitive records its wall time here under a step name such as "navigate",
+ * "fill.input" or "wait.calculate". At the end of the run the percentiles are printed and written
+ * to a JSON report (reports/step-latency-<timestamp>.json by default, --latency-report overrides it)
+ * so runs can be compared over time. Inside a traced test case each recorded step also becomes a child span.
+ */
+final class StepTimings {
+    
+    private static final Map<String, LatencyHistogram> STEPS = new ConcurrentHashMap<>();
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private StepTimings() {
+    }
+    
+    /**
+     * Record the time since startNanos (a System.nanoTime() reading) under the given step
+     */
+    static void record(String step, long startNanos) {
+        record(step, startNanos, Attributes.empty());
+    }
+    
+    static void record(String step, long startNanos, Attributes attributes) {
+        long endNanos = System.nanoTime();
+        recordNanos(step, endNanos - startNanos);
+        Tracing.recordStep(step, startNanos, endNanos, attributes);
+    }
+    
+    static void recordNanos(String step, long nanos) {
+        STEPS.computeIfAbsent(step, k -> new LatencyHistogram()).record(nanos);
+    }
+    
+    static <T> T time(String step, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(step, start);
+        }
+    }
+    
+    static void time(String step, Runnable action) {
+        time(step, Attributes.empty(), action);
+    }
+    
+    static void time(String step, Attributes attributes, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            record(step, start, attributes);
+        }
+    }
+    
+    static LatencyHistogram histogram(String step) {
+        return STEPS.get(step);
+    }
+    
+    static Map<String, LatencyHistogram> snapshot() {
+        return new TreeMap<>(STEPS);
+    }
+    
+    static void printSummary() {
+        Map<String, LatencyHistogram> steps = new TreeMap<>(STEPS);
+        if (steps.isEmpty()) {
+            return;
+        }
+        System.out.println("\nStep Latency Summary (ms)");
+        System.out.println(String.format("  %-22s %8s %9s %9s %9s %9s %10s",
+            "step", "count", "p50", "p90", "p99", "max", "total"));
+        for (Map.Entry<String, LatencyHistogram> entry : steps.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            System.out.println(String.format("  %-22s %8d %9.2f %9.2f %9.2f %9.2f %10.0f",
+                entry.getKey(), histogram.count(),
+                millis(histogram.percentile(50)), millis(histogram.percentile(90)),
+                millis(histogram.percentile(99)), millis(histogram.maxNanos()),
+                millis(histogram.totalNanos())));
+        }
+    }
+    
+    /**
+     * Write the histograms as JSON, returns the file written or null when nothing was recorded
+     */
+    static Path writeReport(SuiteConfig config) throws IOException {
+        Map<String, LatencyHistogram> steps = new TreeMap<>(STEPS);
+        if (steps.isEmpty()) {
+            return null;
+        }
+        Path report = Path.of(config.get("latency-report",
+            "reports/step-latency-" + LocalDateTime.now().format(FILE_STAMP) + ".json"));
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        
+        try (Writer out = Files.newBufferedWriter(report, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(out)) {
+            json.setIndent("  ");
+            json.beginObject();
+            json.name("generatedAt").value(Instant.now().toString());
+            json.name("mode").value(config.mode());
+            json.name("target").value(config.calculatorUrl());
+            json.name("workers").value(config.workers());
+            json.name("unit").value("ns");
+            json.name("steps").beginObject();
+            for (Map.Entry<String, LatencyHistogram> entry : steps.entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                json.name(entry.getKey()).beginObject();
+                json.name("count").value(histogram.count());
+                json.name("min").value(histogram.minNanos());
+                json.name("mean").value(histogram.meanNanos());
+                json.name("p50").value(histogram.percentile(50));
+                json.name("p90").value(histogram.percentile(90));
+                json.name("p99").value(histogram.percentile(99));
+                json.name("max").value(histogram.maxNanos());
+                json.name("total").value(histogram.totalNanos());
+                json.endObject();
+            }
+            json.endObject();
+            json.endObject();
+        }
+        return report;
+    }
+    
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
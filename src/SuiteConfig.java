@@ -0,0 +1,163 @@
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Run configuration read from command-line flags
+ * Flags use the form --name=value and fall back to -Dcalculator.name=value system properties
+ */
+final class SuiteConfig {
+    
+    private static final String PROPERTY_PREFIX = "calculator.";
+    static final String LIVE_URL = "https://www.calculator.net/carbohydrate-calculator.html";
+    static final List<String> MODES = List.of("suite", "combinatorial", "boundaries", "equivalence", "differential",
+        "http", "load", "load-compare", "oracle", "merge", "diff");
+    
+    private final Map<String, String> values;
+    
+    private SuiteConfig(Map<String, String> values) {
+        this.values = values;
+    }
+    
+    static SuiteConfig fromArgs(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unrecognized argument: " + arg);
+            }
+            String flag = arg.substring(2);
+            int eq = flag.indexOf('=');
+            if (eq < 0) {
+                values.put(flag, "true");
+            } else {
+                values.put(flag.substring(0, eq), flag.substring(eq + 1));
+            }
+        }
+        return new SuiteConfig(values);
+    }
+    
+    /**
+     * Copy of this configuration with one value overridden
+     */
+    SuiteConfig with(String name, String value) {
+        Map<String, String> copy = new HashMap<>(values);
+        copy.put(name, value);
+        return new SuiteConfig(copy);
+    }
+    
+    String get(String name, String defaultValue) {
+        String value = values.get(name);
+        if (value == null) {
+            value = System.getProperty(PROPERTY_PREFIX + name);
+        }
+        return value != null ? value : defaultValue;
+    }
+    
+    double getDouble(String name, double defaultValue) {
+        String value = get(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a number, got '" + value + "'");
+        }
+    }
+    
+    long getLong(String name, long defaultValue) {
+        String value = get(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects an integer, got '" + value + "'");
+        }
+    }
+    
+    int getInt(String name, int defaultValue) {
+        String value = get(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects an integer, got '" + value + "'");
+        }
+    }
+    
+    /**
+     * What to run, one of MODES, default is suite
+     */
+    String mode() {
+        String mode = get("mode", "suite");
+        if (!MODES.contains(mode)) {
+            throw new IllegalArgumentException("Unknown --mode '" + mode + "', expected one of " + String.join(", ", MODES));
+        }
+        return mode;
+    }
+    
+    /**
+     * Comma-separated scenario files or directories, default is the scenarios directory
+     */
+    String scenarioLocations() {
+        return get("scenarios", "scenarios");
+    }
+    
+    /**
+     * Number of worker threads and pooled browser sessions, default is 3
+     */
+    int workers() {
+        return Math.max(1, getInt("workers", 3));
+    }
+    
+    /**
+     * Per-step timeout for result waits after calculate, default is 8 seconds
+     */
+    Duration resultTimeout() {
+        return Duration.ofMillis(Math.max(1, getInt("result-timeout-ms", 8000)));
+    }
+    
+    /**
+     * Absolute tolerance for comparing calorie and gram figures, default is 1.0
+     */
+    double tolerance() {
+        return getDouble("tolerance", 1.0);
+    }
+    
+    /**
+     * True when scenarios should run against the embedded stand-in (--target=stub) instead of the live site
+     * Browserless HTTP and load modes default to the stand-in so they never flood the public site by accident.
+     */
+    boolean useStub() {
+        String target = get("target", mode().equals("http") || mode().equals("load") ? "stub" : "live");
+        if (!target.equals("live") && !target.equals("stub")) {
+            throw new IllegalArgumentException("--target must be 'live' or 'stub', got '" + target + "'");
+        }
+        return target.equals("stub");
+    }
+    
+    /**
+     * Calculator page the scenarios open, --url overrides the live site
+     */
+    String calculatorUrl() {
+        return get("url", LIVE_URL);
+    }
+    
+    /**
+     * What the run measures: "stub" for the local stand-in, whose port changes every run, otherwise the
+     * host and port of the calculator URL
+     */
+    String targetName() {
+        if (useStub()) {
+            return "stub";
+        }
+        String authority = URI.create(calculatorUrl()).getAuthority();
+        return authority == null ? calculatorUrl() : authority;
+    }
+}
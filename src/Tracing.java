@@ -0,0 +1,110 @@
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.TracerProvider;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run-wide OpenTelemetry tracer writing to a local OTLP-JSON file
+ * Each test case is a root span, every timed browser step inside it becomes a child span. Tracing is on
+ * by default (reports/trace-<timestamp>.otlp.json, --trace-file overrides it), --trace=false turns it off.
+ */
+final class Tracing {
+    
+    static final String SCOPE = "carbohydrate-calculator-suite";
+    
+    static final AttributeKey<String> FIELD = AttributeKey.stringKey("calculator.field");
+    static final AttributeKey<String> VALUE = AttributeKey.stringKey("calculator.value");
+    static final AttributeKey<String> CLICK_TARGET = AttributeKey.stringKey("calculator.click.target");
+    
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private static volatile Tracer tracer = TracerProvider.noop().get(SCOPE);
+    private static volatile LocalTracerProvider provider;
+    private static volatile OtlpJsonFileExporter exporter;
+    
+    private Tracing() {
+    }
+    
+    /**
+     * Install the file-exporting tracer for this run unless --trace=false
+     */
+    static void start(SuiteConfig config) {
+        if (!Boolean.parseBoolean(config.get("trace", "true"))) {
+            return;
+        }
+        Path file = Path.of(config.get("trace-file",
+            "reports/trace-" + LocalDateTime.now().format(FILE_STAMP) + ".otlp.json"));
+        try {
+            exporter = new OtlpJsonFileExporter(file, SCOPE);
+            provider = new LocalTracerProvider(exporter);
+            tracer = provider.get(SCOPE);
+        } catch (IOException e) {
+            System.err.println("Tracing disabled, cannot write " + file + ": " + e.getMessage());
+        }
+    }
+    
+    static Tracer tracer() {
+        return tracer;
+    }
+    
+    /**
+     * Child span for a step that already finished, timed with System.nanoTime()
+     * Only recorded inside a traced operation, so untraced bulk work does not flood the file with root spans.
+     */
+    static void recordStep(String step, long startNanos, long endNanos, Attributes attributes) {
+        LocalTracerProvider recording = provider;
+        if (recording == null || !Span.current().getSpanContext().isValid()) {
+            return;
+        }
+        Span span = tracer.spanBuilder(step)
+            .setStartTimestamp(recording.toEpochNanos(startNanos), TimeUnit.NANOSECONDS)
+            .setAllAttributes(attributes)
+            .startSpan();
+        span.end(recording.toEpochNanos(endNanos), TimeUnit.NANOSECONDS);
+    }
+    
+    static Attributes fieldAttributes(String field, String value) {
+        return Attributes.of(FIELD, field, VALUE, value == null ? "" : value);
+    }
+    
+    /**
+     * Profile inputs as span attributes, one per form field
+     */
+    static Attributes profileAttributes(CalculatorProfile profile) {
+        return Attributes.builder()
+            .put("calculator.units", profile.units().name().toLowerCase())
+            .put("calculator.age", profile.age())
+            .put("calculator.sex", profile.sex().name().toLowerCase())
+            .put("calculator.height", profile.height())
+            .put("calculator.inches", profile.heightInches() == null ? "" : profile.heightInches())
+            .put("calculator.weight", profile.weight())
+            .put("calculator.activity", profile.activity())
+            .build();
+    }
+    
+    /**
+     * Flush and close the trace file, returns it or null when tracing was off
+     */
+    static Path finish() {
+        OtlpJsonFileExporter current = exporter;
+        if (current == null) {
+            return null;
+        }
+        try {
+            current.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close trace file: " + e.getMessage());
+        }
+        tracer = TracerProvider.noop().get(SCOPE);
+        provider = null;
+        exporter = null;
+        System.out.println("Trace: " + current.exportedSpans() + " spans written to " + current.file());
+        return current.file();
+    }
+}
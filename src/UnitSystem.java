@@ -0,0 +1,29 @@
+/**
+ * Unit tabs on the calculator form and the height/weight fields each tab shows
+ */
+enum UnitSystem {
+    METRIC("Metric Units", "cheightmeter", "ckg"),
+    US("US Units", "cheightfeet", "cpound");
+    
+    private final String tabLabel;
+    private final String heightField;
+    private final String weightField;
+    
+    UnitSystem(String tabLabel, String heightField, String weightField) {
+        this.tabLabel = tabLabel;
+        this.heightField = heightField;
+        this.weightField = weightField;
+    }
+    
+    String tabLabel() {
+        return tabLabel;
+    }
+    
+    String heightField() {
+        return heightField;
+    }
+    
+    String weightField() {
+        return weightField;
+    }
+}